@@ -0,0 +1,176 @@
+package com.example.rawloader.bench;
+
+import com.example.rawloader.model.LoaderColumnDTO;
+import com.example.rawloader.model.LoaderConfigDTO;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic benchmark inputs. The same (rows, mix) always produces the same cells, so results
+ * are comparable across runs and machines. Generated files are cached in java.io.tmpdir.
+ */
+public final class SyntheticSheets {
+
+    public static final String[] HEADERS = {"Order Id", "Customer", "Amount", "Quantity", "Order Date", "Ship Date", "Country", "Note"};
+
+    private static final String[] COUNTRIES = {"DE", "FR", "IN", "US", "GB", "NL", "SE", "JP"};
+    private static final long SEED = 0x5EEDL;
+
+    private SyntheticSheets() {
+    }
+
+    public enum Mix {
+        CLEAN(0),
+        DIRTY(0.05);   // ~5% of rows carry one invalid or missing value
+
+        final double errorRate;
+
+        Mix(double errorRate) {
+            this.errorRate = errorRate;
+        }
+    }
+
+    public static LoaderConfigDTO config() {
+        LoaderConfigDTO config = new LoaderConfigDTO();
+        config.setConfigId("bench");
+        config.setPartnerId(1L);
+        List<LoaderColumnDTO> columns = new ArrayList<>();
+        columns.add(column("Order Id", "orderId", "string", true, null));
+        columns.add(column("Customer", "customer", "string", true, null));
+        columns.add(column("Amount", "amount", "number", true, null));
+        columns.add(column("Quantity", "quantity", "number", false, null));
+        columns.add(column("Order Date", "orderDate", "date", true, "dd/MM/yyyy"));
+        columns.add(column("Ship Date", "shipDate", "date", false, "dd/MM/yyyy"));
+        columns.add(column("Country", "country", "string", false, null));
+        columns.add(column("Note", "note", "string", false, null));
+        config.setColumnMappings(columns);
+        return config;
+    }
+
+    /**
+     * Cell texts of row {@code r} (0 = header), as they would be typed into a CSV.
+     */
+    public static String[] textRow(Random random, int r, Mix mix) {
+        if (r == 0) return HEADERS.clone();
+        LocalDate date = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1500));
+        String[] cells = {
+                "ORD-" + r,
+                "Customer " + random.nextInt(5000),
+                String.format(Locale.ROOT, "%.2f", random.nextDouble() * 10_000),
+                Integer.toString(1 + random.nextInt(50)),
+                String.format(Locale.ROOT, "%02d/%02d/%04d", date.getDayOfMonth(), date.getMonthValue(), date.getYear()),
+                random.nextInt(10) == 0 ? "" : String.format(Locale.ROOT, "%02d/%02d/%04d", date.getDayOfMonth(), date.getMonthValue(), date.getYear()),
+                COUNTRIES[random.nextInt(COUNTRIES.length)],
+                random.nextInt(4) == 0 ? "priority" : ""
+        };
+        if (mix.errorRate > 0 && random.nextDouble() < mix.errorRate) {
+            switch (random.nextInt(4)) {
+                case 0 -> cells[2] = "12,34x";
+                case 1 -> cells[4] = "31-31-2024";
+                case 2 -> cells[1] = "";
+                default -> cells[3] = "many";
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * An .xlsx with {@code rows} data rows: numbers as numeric cells, dates as date formatted cells
+     * (except dirty ones, which stay text).
+     */
+    public static Path xlsx(int rows, Mix mix) {
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "rawloader-jmh", "sheet-" + rows + "-" + mix + ".xlsx");
+        if (Files.exists(file)) return file;
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "gen", ".xlsx");
+            try (SXSSFWorkbook wb = new SXSSFWorkbook(500); OutputStream out = Files.newOutputStream(tmp)) {
+                wb.setCompressTempFiles(true);
+                CellStyle dateStyle = wb.createCellStyle();
+                dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+                Sheet sheet = wb.createSheet("data");
+                Random random = new Random(SEED);
+                for (int r = 0; r <= rows; r++) {
+                    String[] cells = textRow(random, r, mix);
+                    Row row = sheet.createRow(r);
+                    for (int c = 0; c < cells.length; c++) {
+                        if (cells[c].isEmpty()) continue;
+                        Cell cell = row.createCell(c);
+                        writeCell(cell, r, c, cells[c], dateStyle);
+                    }
+                }
+                wb.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The same rows as a CSV file.
+     */
+    public static Path csv(int rows, Mix mix) {
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "rawloader-jmh", "sheet-" + rows + "-" + mix + ".csv");
+        if (Files.exists(file)) return file;
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "gen", ".csv");
+            try (var out = Files.newBufferedWriter(tmp)) {
+                Random random = new Random(SEED);
+                for (int r = 0; r <= rows; r++) {
+                    out.write(String.join(",", textRow(random, r, mix)));
+                    out.write('\n');
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCell(Cell cell, int r, int c, String text, CellStyle dateStyle) {
+        if (r > 0 && (c == 2 || c == 3)) {
+            try {
+                cell.setCellValue(Double.parseDouble(text));
+                return;
+            } catch (NumberFormatException dirty) {
+                // falls through to text
+            }
+        }
+        if (r > 0 && (c == 4 || c == 5) && text.length() == 10 && text.charAt(2) == '/') {
+            cell.setCellValue(LocalDate.of(Integer.parseInt(text.substring(6)),
+                    Integer.parseInt(text.substring(3, 5)), Integer.parseInt(text.substring(0, 2))));
+            cell.setCellStyle(dateStyle);
+            return;
+        }
+        cell.setCellValue(text);
+    }
+
+    private static LoaderColumnDTO column(String header, String key, String type, boolean required, String format) {
+        LoaderColumnDTO column = new LoaderColumnDTO();
+        column.setHeader(header);
+        column.setKey(key);
+        column.setType(type);
+        column.setRequired(required);
+        column.setFormat(format);
+        return column;
+    }
+}
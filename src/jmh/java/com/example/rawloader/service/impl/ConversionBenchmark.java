@@ -0,0 +1,65 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.bench.SyntheticSheets;
+import com.example.rawloader.util.SheetRow;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of the column mapping used by transform and by validate-and-transform uploads.
+ * Reported as ns/row: one op is one row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private static final int ROWS = 1024;
+
+    @Param({"CLEAN", "DIRTY"})
+    public SyntheticSheets.Mix mix;
+
+    private LoaderPlan.Bound bound;
+    private SheetRow[] rows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LoaderPlan plan = LoaderPlan.compile(SyntheticSheets.config());
+        bound = plan.bind(SheetRow.ofText(0, SyntheticSheets.textRow(random, 0, mix)));
+        rows = new SheetRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            rows[r] = SheetRow.ofText(r + 1, SyntheticSheets.textRow(random, r + 1, mix));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void toMap(Blackhole bh) {
+        for (SheetRow row : rows) bh.consume(bound.convert(row));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void toJson(Blackhole bh) {
+        for (SheetRow row : rows) bh.consume(bound.convert(row, JsonNodeFactory.instance));
+    }
+}
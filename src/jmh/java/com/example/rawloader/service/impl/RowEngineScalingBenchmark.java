@@ -0,0 +1,120 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.LoaderColumnDTO;
+import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.util.SheetRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the {@link RowProcessingEngine} scales with worker count when the parser is not the bottleneck
+ * (rows are pre-parsed). Reported as ns/row. Needs nothing but the engine and the plan, so its rows
+ * are built here rather than from the shared benchmark sheets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowEngineScalingBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final String[] HEADERS = {"Order Id", "Customer", "Amount", "Quantity", "Order Date"};
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private ForkJoinPool pool;
+    private RowProcessingEngine engine;
+    private LoaderPlan.Bound bound;
+    private SheetRow[] rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RawLoaderProperties properties = new RawLoaderProperties();
+        properties.getIngest().setParallelism(parallelism);
+        properties.getIngest().setBatchSize(batchSize);
+        pool = new ForkJoinPool(parallelism);
+        engine = new RowProcessingEngine(pool, properties);
+
+        Random random = new Random(42);
+        bound = LoaderPlan.compile(config()).bind(SheetRow.ofText(0, HEADERS.clone()));
+        rows = new SheetRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            rows[r] = SheetRow.ofText(r + 1, new String[]{
+                    "ORD-" + r,
+                    "Customer " + random.nextInt(5000),
+                    String.format(Locale.ROOT, "%.2f", random.nextDouble() * 10_000),
+                    Integer.toString(1 + random.nextInt(50)),
+                    String.format(Locale.ROOT, "%02d/%02d/2024", 1 + random.nextInt(28), 1 + random.nextInt(12))
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long convertAll() {
+        long[] out = new long[1];
+        RowProcessingEngine.Pipeline<List<Map<String, Object>>> pipeline = engine.pipeline(batch -> {
+            List<Map<String, Object>> converted = new ArrayList<>(batch.size());
+            for (SheetRow row : batch) converted.add(bound.convert(row));
+            return converted;
+        }, converted -> {
+            out[0] += converted.size();
+            return true;
+        });
+        for (SheetRow row : rows) pipeline.onRow(row);
+        pipeline.finish();
+        return out[0];
+    }
+
+    private static LoaderConfigDTO config() {
+        String[][] columns = {
+                {"orderId", "string", null}, {"customer", "string", null}, {"amount", "number", null},
+                {"quantity", "number", null}, {"orderDate", "date", "dd/MM/yyyy"}};
+        List<LoaderColumnDTO> mappings = new ArrayList<>();
+        for (int c = 0; c < columns.length; c++) {
+            LoaderColumnDTO column = new LoaderColumnDTO();
+            column.setHeader(HEADERS[c]);
+            column.setKey(columns[c][0]);
+            column.setType(columns[c][1]);
+            column.setFormat(columns[c][2]);
+            mappings.add(column);
+        }
+        LoaderConfigDTO config = new LoaderConfigDTO();
+        config.setConfigId("bench");
+        config.setPartnerId(1L);
+        config.setColumnMappings(mappings);
+        return config;
+    }
+}
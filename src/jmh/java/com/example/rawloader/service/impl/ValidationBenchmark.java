@@ -0,0 +1,89 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.bench.SyntheticSheets;
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.model.ValidationResult;
+import com.example.rawloader.util.SheetFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end {@link ExcelValidatorService#validate}: spool, parse, validate, sample.
+ * One op is one whole file; the {@code rows} counter turns that into rows/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ValidationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"CLEAN", "DIRTY"})
+    public SyntheticSheets.Mix mix;
+
+    @Param({"EXCEL", "CSV"})
+    public SheetFormat format;
+
+    private Path file;
+    private LoaderConfigDTO config;
+    private ForkJoinPool pool;
+    private ExcelValidatorService validator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        file = format == SheetFormat.CSV ? SyntheticSheets.csv(rows, mix) : SyntheticSheets.xlsx(rows, mix);
+        config = SyntheticSheets.config();
+        RawLoaderProperties properties = new RawLoaderProperties();
+        pool = new ForkJoinPool(properties.getIngest().effectiveParallelism());
+        validator = new ExcelValidatorService(new RowProcessingEngine(pool, properties), properties,
+                new IngestMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Rows {
+        public long rows;
+        public long errors;
+    }
+
+    @Benchmark
+    public ValidationResult validate(Rows counters) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            ValidationResult result = validator.validate(in, format, config);
+            counters.rows += rows;
+            counters.errors += result.getErrors().size();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.rawloader.util;
+
+import com.example.rawloader.bench.SyntheticSheets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link SheetRow} cell helpers the validator and the column mapping call for every row, on rows
+ * produced by the streaming {@link ExcelSheetReader}. ns/row: one op is one row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SheetRowBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"CLEAN", "DIRTY"})
+    public SyntheticSheets.Mix mix;
+
+    private SheetRow[] rows;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<SheetRow> read = new ArrayList<>(ROWS);
+        new ExcelSheetReader().read(SyntheticSheets.xlsx(ROWS, mix), row -> {
+            if (row.getRowNum() > 0) read.add(row);
+            return true;
+        });
+        rows = read.toArray(SheetRow[]::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void isEmpty(Blackhole bh) {
+        for (SheetRow row : rows) bh.consume(row.isEmpty());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void readCells(Blackhole bh) {
+        for (SheetRow row : rows) {
+            for (int c = 0; c < row.size(); c++) {
+                bh.consume(row.kind(c));
+                bh.consume(row.value(c));
+                bh.consume(row.number(c));
+            }
+        }
+    }
+}
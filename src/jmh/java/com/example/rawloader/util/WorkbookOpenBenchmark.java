@@ -0,0 +1,61 @@
+package com.example.rawloader.util;
+
+import com.example.rawloader.bench.SyntheticSheets;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening and walking a workbook: the streaming {@link ExcelSheetReader} against the
+ * {@link WorkbookFactory} object model it replaced. Run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class WorkbookOpenBenchmark {
+
+    // the object model needs several GB beyond 100k rows; ValidationBenchmark covers streaming at 1M
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private Path file;
+
+    @Setup
+    public void setUp() {
+        file = SyntheticSheets.xlsx(rows, SyntheticSheets.Mix.CLEAN);
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        long[] seen = new long[1];
+        new ExcelSheetReader().read(file, row -> {
+            seen[0]++;
+            return true;
+        });
+        return seen[0];
+    }
+
+    @Benchmark
+    public int workbookFactory() throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
+            return workbook.getSheetAt(0).getLastRowNum();
+        }
+    }
+}
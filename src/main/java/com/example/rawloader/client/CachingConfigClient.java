@@ -0,0 +1,53 @@
+package com.example.rawloader.client;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.util.RefreshingCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Cached {@link ConfigClient}: injected wherever a ConfigClient is asked for; the Feign client
+ * is only called on a miss or a background refresh.
+ */
+@Component
+@Primary
+public class CachingConfigClient implements ConfigClient {
+
+    private final RefreshingCache<ConfigKey, LoaderConfigDTO> cache;
+
+    public CachingConfigClient(@Qualifier("remoteConfigClient") ConfigClient remote,
+                               RawLoaderProperties properties,
+                               @Qualifier("ioExecutor") ExecutorService ioExecutor) {
+        RawLoaderProperties.ClientCache settings = properties.getConfigCache();
+        this.cache = new RefreshingCache<>(key -> remote.getConfig(key.partnerId(), key.configId()),
+                settings.getMaxEntries(), settings.getRefreshAfter(), settings.getExpireAfter(), ioExecutor);
+    }
+
+    @Override
+    public LoaderConfigDTO getConfig(Long partnerId, String configId) {
+        return cache.get(new ConfigKey(partnerId, configId));
+    }
+
+    public void invalidate(Long partnerId, String configId) {
+        cache.invalidate(new ConfigKey(partnerId, configId));
+    }
+
+    public void invalidatePartner(Long partnerId) {
+        cache.invalidateIf(key -> partnerId.equals(key.partnerId()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public RefreshingCache<?, ?> cache() {
+        return cache;
+    }
+
+    private record ConfigKey(Long partnerId, String configId) {
+    }
+}
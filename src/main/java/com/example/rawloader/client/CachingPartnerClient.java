@@ -0,0 +1,45 @@
+package com.example.rawloader.client;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.dto.PartnerDTO;
+import com.example.rawloader.util.RefreshingCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Cached {@link PartnerClient}, see {@link CachingConfigClient}.
+ */
+@Component
+@Primary
+public class CachingPartnerClient implements PartnerClient {
+
+    private final RefreshingCache<Long, PartnerDTO> cache;
+
+    public CachingPartnerClient(@Qualifier("remotePartnerClient") PartnerClient remote,
+                                RawLoaderProperties properties,
+                                @Qualifier("ioExecutor") ExecutorService ioExecutor) {
+        RawLoaderProperties.ClientCache settings = properties.getPartnerCache();
+        this.cache = new RefreshingCache<>(remote::getPartner,
+                settings.getMaxEntries(), settings.getRefreshAfter(), settings.getExpireAfter(), ioExecutor);
+    }
+
+    @Override
+    public PartnerDTO getPartner(Long partnerId) {
+        return cache.get(partnerId);
+    }
+
+    public void invalidate(Long partnerId) {
+        cache.invalidate(partnerId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public RefreshingCache<?, ?> cache() {
+        return cache;
+    }
+}
@@ -9,7 +9,8 @@ import org.springframework.web.bind.annotation.PathVariable;
  * Calls Partner service to fetch partner details.
  * Make sure services.partner.url is set in application.yml
  */
-@FeignClient(name = "partner-service", url = "${services.partner.url}", configuration = com.example.rawloader.config.FeignConfiguration.class)
+@FeignClient(name = "partner-service", url = "${services.partner.url}", configuration = com.example.rawloader.config.FeignConfiguration.class,
+        primary = false, qualifiers = "remotePartnerClient")
 public interface PartnerClient {
     @GetMapping("/api/partners/{partnerId}")
     PartnerDTO getPartner(@PathVariable("partnerId") Long partnerId);
@@ -0,0 +1,37 @@
+package com.example.rawloader.config;
+
+import com.example.rawloader.service.impl.AdmissionController;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Memory budget of the admission controller: reserved vs budget bytes, queue depth and outcomes,
+ * e.g. /actuator/metrics/rawloader.admission.requests?tag=result:rejected_timeout
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionMetrics implements MeterBinder {
+
+    private final AdmissionController admission;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("rawloader.admission.reserved.bytes", admission, AdmissionController::reservedBytes)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("rawloader.admission.budget.bytes", admission, AdmissionController::budgetBytes)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("rawloader.admission.queue.depth", admission, AdmissionController::queueDepth).register(registry);
+        FunctionCounter.builder("rawloader.admission.requests", admission, AdmissionController::admittedCount)
+                .tag("result", "admitted").register(registry);
+        FunctionCounter.builder("rawloader.admission.requests", admission, AdmissionController::rejectedQueueFullCount)
+                .tag("result", "rejected_queue_full").register(registry);
+        FunctionCounter.builder("rawloader.admission.requests", admission, AdmissionController::rejectedTimeoutCount)
+                .tag("result", "rejected_timeout").register(registry);
+        FunctionCounter.builder("rawloader.admission.delayed", admission, AdmissionController::delayedCount)
+                .register(registry);
+    }
+}
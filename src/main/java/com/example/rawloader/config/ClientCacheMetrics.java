@@ -0,0 +1,43 @@
+package com.example.rawloader.config;
+
+import com.example.rawloader.client.CachingConfigClient;
+import com.example.rawloader.client.CachingPartnerClient;
+import com.example.rawloader.util.RefreshingCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hit/miss counters of the client caches, e.g. /actuator/metrics/rawloader.client.cache.requests?tag=cache:config
+ */
+@Component
+@RequiredArgsConstructor
+public class ClientCacheMetrics implements MeterBinder {
+
+    private final CachingConfigClient configClient;
+    private final CachingPartnerClient partnerClient;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "config", configClient.cache());
+        bind(registry, "partner", partnerClient.cache());
+    }
+
+    private static void bind(MeterRegistry registry, String name, RefreshingCache<?, ?> cache) {
+        FunctionCounter.builder("rawloader.client.cache.requests", cache, RefreshingCache::hitCount)
+                .tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("rawloader.client.cache.requests", cache, RefreshingCache::staleHitCount)
+                .tags("cache", name, "result", "stale").register(registry);
+        FunctionCounter.builder("rawloader.client.cache.requests", cache, RefreshingCache::missCount)
+                .tags("cache", name, "result", "miss").register(registry);
+        FunctionCounter.builder("rawloader.client.cache.load.failures", cache, RefreshingCache::loadFailureCount)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("rawloader.client.cache.evictions", cache, RefreshingCache::evictionCount)
+                .tag("cache", name).register(registry);
+        Gauge.builder("rawloader.client.cache.size", cache, RefreshingCache::size)
+                .tag("cache", name).register(registry);
+    }
+}
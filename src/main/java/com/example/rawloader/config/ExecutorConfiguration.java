@@ -0,0 +1,34 @@
+package com.example.rawloader.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+@EnableConfigurationProperties(RawLoaderProperties.class)
+@EnableScheduling
+public class ExecutorConfiguration {
+
+    // Blocking I/O (GridFS writes, stream pumps, bulk inserts) → virtual threads
+    @Bean(destroyMethod = "close")
+    public ExecutorService ioExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // Transform jobs; concurrency is capped by TransformJobServiceImpl
+    @Bean(destroyMethod = "close")
+    public ExecutorService jobExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // CPU bound row validation/conversion → bounded fork-join pool
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool rowWorkerPool(RawLoaderProperties properties) {
+        return new ForkJoinPool(properties.getIngest().effectiveParallelism());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.rawloader.config;
+
+import com.example.rawloader.service.impl.GridFsServiceImpl;
+import com.example.rawloader.util.MappedFileCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hit rate and size of the local file cache, e.g. /actuator/metrics/rawloader.file.cache.requests?tag=result:hit
+ */
+@Component
+@RequiredArgsConstructor
+public class FileCacheMetrics implements MeterBinder {
+
+    private final GridFsServiceImpl fileStorageService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MappedFileCache cache = fileStorageService.cache();
+        if (cache == null) return;
+        FunctionCounter.builder("rawloader.file.cache.requests", cache, MappedFileCache::hitCount)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("rawloader.file.cache.requests", cache, MappedFileCache::missCount)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("rawloader.file.cache.evictions", cache, MappedFileCache::evictionCount)
+                .register(registry);
+        FunctionCounter.builder("rawloader.file.cache.skipped", cache, MappedFileCache::skippedCount)
+                .register(registry);
+        Gauge.builder("rawloader.file.cache.size", cache, MappedFileCache::size).register(registry);
+        Gauge.builder("rawloader.file.cache.bytes", cache, MappedFileCache::totalBytes)
+                .baseUnit("bytes").register(registry);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.rawloader.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ingestion metrics, scraped from /actuator/prometheus:
+ * <ul>
+ *   <li>{@code rawloader.stage.duration{stage}}: timer with histogram buckets per pipeline stage</li>
+ *   <li>{@code rawloader.ingest.rows|bytes|errors{partner,config}}: volume counters, e.g. rate() for rows/sec</li>
+ *   <li>{@code rawloader.ingest.duplicates{partner,config}}: repeat uploads answered from an earlier one</li>
+ *   <li>{@code rawloader.uploads.in.flight}, {@code rawloader.jobs.queued|running}: gauges</li>
+ * </ul>
+ */
+@Component
+public class IngestMetrics {
+
+    public enum Stage {
+        PARTNER_LOOKUP("partner_lookup"),
+        CONFIG_FETCH("config_fetch"),
+        GRIDFS_STORE("gridfs_store"),
+        GRIDFS_DOWNLOAD("gridfs_download"),
+        WORKBOOK_OPEN("workbook_open"),   // start of the read until the header row: spooling, zip and shared strings
+        VALIDATION("validation"),
+        CONVERSION("conversion"),         // per batch, on the worker threads
+        MONGO_INSERT("mongo_insert");     // per bulk insert
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final AtomicInteger uploadsInFlight = new AtomicInteger();
+    private final AtomicInteger jobsQueued = new AtomicInteger();
+    private final AtomicInteger jobsRunning = new AtomicInteger();
+
+    public IngestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("rawloader.stage.duration")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        Gauge.builder("rawloader.uploads.in.flight", uploadsInFlight, AtomicInteger::get).register(registry);
+        Gauge.builder("rawloader.jobs.queued", jobsQueued, AtomicInteger::get).register(registry);
+        Gauge.builder("rawloader.jobs.running", jobsRunning, AtomicInteger::get).register(registry);
+    }
+
+    public Timer timer(Stage stage) {
+        return timers.get(stage);
+    }
+
+    public <T> T time(Stage stage, Supplier<T> work) {
+        return timers.get(stage).record(work);
+    }
+
+    public void recordSince(Stage stage, long startNanos) {
+        timers.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param phase "validated" for rows read at upload, "transformed" for rows written by a transform
+     */
+    public void rows(Long partnerId, String configId, String phase, long rows) {
+        if (rows > 0) counter("rawloader.ingest.rows", partnerId, configId, "phase", phase).increment(rows);
+    }
+
+    public void bytes(Long partnerId, String configId, long bytes) {
+        if (bytes > 0) counter("rawloader.ingest.bytes", partnerId, configId).increment(bytes);
+    }
+
+    public void errors(Long partnerId, String configId, long errors) {
+        if (errors > 0) counter("rawloader.ingest.errors", partnerId, configId).increment(errors);
+    }
+
+    public void duplicate(Long partnerId, String configId) {
+        counter("rawloader.ingest.duplicates", partnerId, configId).increment();
+    }
+
+    public AtomicInteger uploadsInFlight() {
+        return uploadsInFlight;
+    }
+
+    public AtomicInteger jobsQueued() {
+        return jobsQueued;
+    }
+
+    public AtomicInteger jobsRunning() {
+        return jobsRunning;
+    }
+
+    private Counter counter(String name, Long partnerId, String configId, String... tags) {
+        return Counter.builder(name)
+                .tag("partner", String.valueOf(partnerId))
+                .tag("config", String.valueOf(configId))
+                .tags(tags)
+                .register(registry);
+    }
+}
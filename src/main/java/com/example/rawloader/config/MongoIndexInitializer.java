@@ -0,0 +1,97 @@
+package com.example.rawloader.config;
+
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.RawLoaderTransformed;
+import com.example.rawloader.model.StoredValidationError;
+import com.example.rawloader.model.TransformJob;
+import com.example.rawloader.model.TransformedChunk;
+import com.example.rawloader.model.UploadSession;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Creates the indexes of the hot read paths once the application is up (no-op when they already exist).
+ * Runs in the background and only logs failures: an unreachable Mongo does not keep the service from starting.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+    @Qualifier("ioExecutor")
+    private final Executor ioExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        ioExecutor.execute(() -> {
+            try {
+                createIndexes();
+            } catch (RuntimeException e) {
+                log.warn("Could not create the Mongo indexes, they are created on the next start: {}", e.getMessage());
+            }
+        });
+    }
+
+    public void createIndexes() {
+        // transformed rows of the published run, in _id order (keyset pages, NDJSON)
+        ensure(RawLoaderTransformed.class, new Index().on("metadataId", Sort.Direction.ASC).on("runId", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC).named("metadataId_runId_id"));
+        // row position of a transformed row within its run: a row written twice is a duplicate key
+        ensure(RawLoaderTransformed.class, new Index().on("metadataId", Sort.Direction.ASC).on("runId", Sort.Direction.ASC)
+                .on("row", Sort.Direction.ASC).unique().partial(PartialIndexFilter.of(Criteria.where("row").exists(true)))
+                .named("metadataId_runId_row"));
+        ensure(TransformedChunk.class, new Index().on("metadataId", Sort.Direction.ASC).on("runId", Sort.Direction.ASC)
+                .on("firstRow", Sort.Direction.ASC).unique().named("metadataId_runId_firstRow"));
+        // spilled validation errors by upload, in row order
+        ensure(StoredValidationError.class, new Index().on("metadataId", Sort.Direction.ASC).on("seq", Sort.Direction.ASC)
+                .named("metadataId_seq"));
+
+        // upload history of a partner, newest first
+        ensure(RawLoaderMetadata.class, new Index().on("partnerId", Sort.Direction.ASC).on("uploadDate", Sort.Direction.DESC)
+                .named("partnerId_uploadDate"));
+        ensure(RawLoaderMetadata.class, new Index().on("partnerId", Sort.Direction.ASC).on("configId", Sort.Direction.ASC)
+                .on("validationStatus", Sort.Direction.ASC).on("uploadDate", Sort.Direction.DESC)
+                .named("partnerId_configId_validationStatus"));
+
+        // repeat uploads of the same file
+        ensure(RawLoaderMetadata.class, new Index().on("partnerId", Sort.Direction.ASC).on("configId", Sort.Direction.ASC)
+                .on("contentHash", Sort.Direction.ASC).on("uploadDate", Sort.Direction.DESC)
+                .named("partnerId_configId_contentHash"));
+
+        // active transform jobs: per-partner cap, one job per upload and the sweep for jobs of stopped nodes
+        ensure(TransformJob.class, new Index().on("partnerId", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                .named("partnerId_status"));
+        ensure(TransformJob.class, new Index().on("metadataId", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                .named("metadataId_status"));
+        ensure(TransformJob.class, new Index().on("status", Sort.Direction.ASC).on("heartbeatAt", Sort.Direction.ASC)
+                .named("status_heartbeatAt"));
+
+        // resumable uploads: chunks are written before the GridFS driver would have created its own index
+        ensure("fs.chunks", new Index().on("files_id", Sort.Direction.ASC).on("n", Sort.Direction.ASC)
+                .unique().named("files_id_1_n_1"));
+        ensure(UploadSession.class, new Index().on("status", Sort.Direction.ASC).on("expiresAt", Sort.Direction.ASC)
+                .named("status_expiresAt"));
+    }
+
+    private void ensure(Class<?> type, IndexDefinition index) {
+        ensure(mongoTemplate.getCollectionName(type), index);
+    }
+
+    private void ensure(String collection, IndexDefinition index) {
+        String name = mongoTemplate.indexOps(collection).ensureIndex(index);
+        log.info("Index {} ready on {}", name, collection);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.rawloader.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for the raw loader (prefix "rawloader" in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "rawloader")
+public class RawLoaderProperties {
+
+    private Upload upload = new Upload();
+    private Ingest ingest = new Ingest();
+    private Jobs jobs = new Jobs();
+    private Writer writer = new Writer();
+    private Preview preview = new Preview();
+    private Validation validation = new Validation();
+    private Read read = new Read();
+    private ClientCache configCache = new ClientCache();
+    private ClientCache partnerCache = new ClientCache();
+    private FileCache fileCache = new FileCache();
+    private Admission admission = new Admission();
+
+    @Data
+    public static class Upload {
+        // single-pass upload: chunk size and per-consumer queue depth of the stream fan-out
+        private int teeChunkSize = 64 * 1024;
+        private int teeQueueDepth = 16;
+        // resumable uploads: every chunk but the last has exactly this size (one GridFS chunk document, < 16 MB)
+        private int chunkSize = 1024 * 1024;
+        // an upload session without a new chunk for this long is expired and its chunks removed
+        private Duration sessionTtl = Duration.ofHours(24);
+        private Duration sessionSweepInterval = Duration.ofMinutes(10);
+        // how often validation looks for chunks that have not arrived yet
+        private Duration chunkPollInterval = Duration.ofMillis(200);
+        // complete waits this long for the validation result, then answers 202 with the session to poll;
+        // validation that got no chunk for this long stops and is started again by complete
+        private Duration completeWait = Duration.ofMinutes(2);
+        // the node validating a session renews its heartbeat this often; complete takes over a completed
+        // session whose heartbeat is older than ingestStaleAfter (its node stopped)
+        private Duration ingestHeartbeatInterval = Duration.ofSeconds(30);
+        private Duration ingestStaleAfter = Duration.ofMinutes(2);
+    }
+
+    @Data
+    public static class Ingest {
+        // worker threads for row validation/conversion; 0 = number of available processors
+        private int parallelism = 0;
+        // rows per batch handed to a worker
+        private int batchSize = 1000;
+        // batches queued or running ahead of the parser; 0 = 2 x parallelism
+        private int maxInFlightBatches = 0;
+
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+
+        public int effectiveMaxInFlightBatches() {
+            return maxInFlightBatches > 0 ? maxInFlightBatches : 2 * effectiveParallelism();
+        }
+    }
+
+    @Data
+    public static class Jobs {
+        // transforms running at once on this node; further jobs wait as QUEUED
+        private int maxConcurrent = 4;
+        // active (queued + running) jobs per partner before submissions get 429
+        private int maxPerPartner = 2;
+        // how often progress is written to Mongo
+        private Duration progressInterval = Duration.ofSeconds(1);
+        private long retryAfterSeconds = 30;
+        // a transform records how far it got every this many rows; a failed or interrupted run resumes there
+        private int checkpointRows = 50_000;
+        // nodes renew the heartbeat of their jobs this often; a queued or running job whose heartbeat
+        // is older than staleAfter is closed as INTERRUPTED (its node stopped)
+        private Duration heartbeatInterval = Duration.ofSeconds(30);
+        private Duration staleAfter = Duration.ofMinutes(2);
+        // a running transform holds a lease on its upload, renewed as it goes; another run of the same
+        // upload gets 409 until the first one ended or stopped renewing for this long
+        private Duration leaseDuration = Duration.ofMinutes(2);
+    }
+
+    @Data
+    public static class Writer {
+        // bulk insert batch size adapts between min and max to keep each batch near the target latency
+        private int initialBatchSize = 1000;
+        private int minBatchSize = 200;
+        private int maxBatchSize = 10_000;
+        private Duration targetLatency = Duration.ofMillis(250);
+        // rows per chunk document when the config selects the COLUMNAR layout
+        private int chunkRows = 5000;
+    }
+
+    @Data
+    public static class Preview {
+        // rows captured at upload for previews: the first rows and a random sample over the file
+        private int headRows = 50;
+        private int spreadRows = 50;
+    }
+
+    @Data
+    public static class Validation {
+        // errors kept in memory, on the metadata and in the upload response; the rest are only counted and spilled
+        private int maxErrors = 1000;
+        // stop reading the file once this many errors were found (0 = always read the whole file)
+        private long abortAfterErrors = 0;
+        // example rows kept per (column, message) group
+        private int samplesPerGroup = 5;
+        // errors per spill write to raw_loader_validation_errors
+        private int spillBatchSize = 1000;
+    }
+
+    @Data
+    public static class Read {
+        // keyset pages of transformed rows
+        private int defaultPageSize = 100;
+        private int maxPageSize = 1000;
+        // documents fetched per cursor round-trip when streaming NDJSON
+        private int cursorBatchSize = 1000;
+    }
+
+    @Data
+    public static class ClientCache {
+        // LRU bound on cached lookups
+        private int maxEntries = 1000;
+        // after this an entry is served stale while it is reloaded in the background
+        private Duration refreshAfter = Duration.ofMinutes(5);
+        // after this an entry is no longer served and callers wait for a reload
+        private Duration expireAfter = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class FileCache {
+        // node-local copies of stored files, served memory mapped; its cache files are removed on start.
+        // The directory belongs to one process: one that holds other files, or that another process has locked,
+        // leaves the node without a cache (give each instance on a host its own directory)
+        private boolean enabled = true;
+        private String directory = System.getProperty("java.io.tmpdir") + "/rawloader-file-cache";
+        // a hit is served without asking GridFS for this long after the file was last seen there
+        private Duration recheckAfter = Duration.ofSeconds(30);
+        // LRU bound on the total size of the cached files
+        private long maxBytes = 2L * 1024 * 1024 * 1024;
+        // larger files are always read from GridFS
+        private long maxFileBytes = 256L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Admission {
+        // heap reserved by running uploads and transforms; 0 = budgetFraction of the max heap
+        private long budgetBytes = 0;
+        private double budgetFraction = 0.5;
+        // estimated heap per request: baseBytes + file size x factor (shared strings, zip spooling, row batches)
+        private long baseBytes = 16L * 1024 * 1024;
+        private double excelHeapFactor = 8;
+        private double delimitedHeapFactor = 1;
+        // used for files stored before their size was recorded, and for resumable uploads
+        private long unknownFileBytes = 32L * 1024 * 1024;
+        // HTTP requests waiting for room; beyond this, or after maxWait, the answer is 429 (transform jobs wait)
+        private int maxQueued = 32;
+        private Duration maxWait = Duration.ofSeconds(30);
+        private long retryAfterSeconds = 10;
+    }
+}
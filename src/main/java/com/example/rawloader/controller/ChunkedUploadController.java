@@ -0,0 +1,60 @@
+package com.example.rawloader.controller;
+
+import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.model.UploadChunk;
+import com.example.rawloader.model.UploadSession;
+import com.example.rawloader.service.api.ChunkedUploadService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Resumable uploads: POST to open a session, PUT chunks 0..n (resend any that failed), POST complete
+@RestController
+@RequestMapping("/api/raw-loader/uploads")
+@RequiredArgsConstructor
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSession> initiate(@RequestParam("partnerId") Long partnerId,
+                                                  @RequestParam("configId") String configId,
+                                                  @RequestParam("fileName") String fileName,
+                                                  @RequestParam(value = "contentType", required = false) String contentType,
+                                                  @RequestParam(value = "transform", defaultValue = "false") boolean transform) {
+        UploadSession session = chunkedUploadService.initiate(partnerId, configId, fileName, contentType, transform);
+        return ResponseEntity.status(HttpStatus.CREATED).body(session);
+    }
+
+    // Body is the raw chunk; X-Chunk-SHA256 (hex) is checked when present
+    @PutMapping(value = "/{sessionId}/chunks/{n}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadChunk> putChunk(@PathVariable("sessionId") String sessionId,
+                                                @PathVariable("n") int n,
+                                                @RequestBody byte[] data,
+                                                @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256) {
+        return ResponseEntity.ok(chunkedUploadService.putChunk(sessionId, n, data, sha256));
+    }
+
+    // Received chunks, so an interrupted client knows which ones to resend
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSession> getSession(@PathVariable("sessionId") String sessionId) {
+        return ResponseEntity.ok(chunkedUploadService.getSession(sessionId));
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<UploadResponseDTO> complete(@PathVariable("sessionId") String sessionId) {
+        UploadResponseDTO resp = chunkedUploadService.complete(sessionId);
+        if (!resp.isValid() && !"VALIDATING".equals(resp.getValidationStatus())) {
+            return ResponseEntity.badRequest().body(resp);
+        }
+        return ResponseEntity.accepted().body(resp);
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> abort(@PathVariable("sessionId") String sessionId) {
+        chunkedUploadService.abort(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.rawloader.controller;
+
+import com.example.rawloader.client.CachingConfigClient;
+import com.example.rawloader.client.CachingPartnerClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/raw-loader/cache")
+@RequiredArgsConstructor
+public class ClientCacheController {
+
+    private final CachingConfigClient configClient;
+    private final CachingPartnerClient partnerClient;
+
+    // Drop one cached loader config, e.g. after it was edited in the config service
+    @DeleteMapping("/configs/{partnerId}/{configId}")
+    public ResponseEntity<Void> evictConfig(@PathVariable Long partnerId, @PathVariable String configId) {
+        configClient.invalidate(partnerId, configId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Drop all cached configs of a partner
+    @DeleteMapping("/configs/{partnerId}")
+    public ResponseEntity<Void> evictPartnerConfigs(@PathVariable Long partnerId) {
+        configClient.invalidatePartner(partnerId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/partners/{partnerId}")
+    public ResponseEntity<Void> evictPartner(@PathVariable Long partnerId) {
+        partnerClient.invalidate(partnerId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Drop everything
+    @DeleteMapping
+    public ResponseEntity<Void> evictAll() {
+        configClient.invalidateAll();
+        partnerClient.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
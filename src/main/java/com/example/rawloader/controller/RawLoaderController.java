@@ -1,19 +1,27 @@
 package com.example.rawloader.controller;
 
+import com.example.rawloader.dto.UploadPageDTO;
 import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.dto.ValidationErrorPageDTO;
 import com.example.rawloader.exception.FileValidationException;
+import com.example.rawloader.exception.ResourceNotFoundException;
 import com.example.rawloader.model.RawLoaderMetadata;
 import com.example.rawloader.service.api.FileStorageService;
 import com.example.rawloader.service.api.RawLoaderService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -21,6 +29,8 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class RawLoaderController {
 
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+
     private final RawLoaderService rawLoaderService;
     private final FileStorageService fileStorageService;
 
@@ -28,9 +38,13 @@ public class RawLoaderController {
     public ResponseEntity<UploadResponseDTO> upload(
             @RequestParam("file") MultipartFile file,
             @RequestParam("partnerId") Long partnerId,
-            @RequestParam("configId") String configId
+            @RequestParam("configId") String configId,
+            @RequestParam(value = "transform", defaultValue = "false") boolean transform,
+            @RequestParam(value = "force", defaultValue = "false") boolean force
     ) {
-        UploadResponseDTO resp = rawLoaderService.handleUpload(file, partnerId, configId);
+        // transform=true converts rows during validation instead of re-reading the file later
+        // a file already uploaded for this config returns the earlier result unless force=true
+        UploadResponseDTO resp = rawLoaderService.handleUpload(file, partnerId, configId, transform, force);
         if (!resp.isValid()) {
             return ResponseEntity.badRequest().body(resp);
         }
@@ -43,14 +57,113 @@ public class RawLoaderController {
         return ResponseEntity.ok(metadata);
     }
 
+    // Upload history of a partner, newest first; filters: configId, status (VALIDATED | FAILED)
+    @GetMapping("/partners/{partnerId}/uploads")
+    public ResponseEntity<UploadPageDTO> listUploads(@PathVariable("partnerId") Long partnerId,
+                                                     @RequestParam(value = "configId", required = false) String configId,
+                                                     @RequestParam(value = "status", required = false) String status,
+                                                     @RequestParam(value = "page", defaultValue = "0") int page,
+                                                     @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(rawLoaderService.listUploads(partnerId, configId, status, page, size));
+    }
+
+    // All validation errors of an upload in row order; pass nextCursor as ?after= for the next page
+    @GetMapping("/{id}/errors")
+    public ResponseEntity<ValidationErrorPageDTO> listErrors(@PathVariable("id") String id,
+                                                             @RequestParam(value = "after", required = false) Long after,
+                                                             @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(rawLoaderService.listErrors(id, after, size));
+    }
+
+    // Conditional (If-None-Match / If-Modified-Since) and resumable (single Range) download of the raw file
     @GetMapping("/download/{id}")
-    public ResponseEntity<InputStreamResource> download(@PathVariable("id") String id) {
-        InputStream is = fileStorageService.downloadByMetadataId(id);
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable("id") String id,
+                                                          @RequestHeader HttpHeaders requestHeaders) {
         RawLoaderMetadata metadata = rawLoaderService.getMetadata(id);
-        InputStreamResource resource = new InputStreamResource(is);
-        return ResponseEntity.ok()
+        if (metadata.getGridFsId() == null) {
+            throw new ResourceNotFoundException("No stored file for upload " + id);
+        }
+        // the content never changes: its hash, or for older uploads the GridFS id, is a strong validator
+        String etag = "\"" + (metadata.getContentHash() != null ? metadata.getContentHash() : metadata.getGridFsId()) + "\"";
+        long lastModified = metadata.getUploadDate() != null ? metadata.getUploadDate().toEpochMilli() : -1;
+        if (notModified(requestHeaders, etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        FileStorageService.StoredFile file = fileStorageService.open(metadata.getGridFsId());
+        long length = file.length();
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        List<HttpRange> ranges = rangesOf(requestHeaders, etag);
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                status = HttpStatus.PARTIAL_CONTENT;
+            } catch (IllegalArgumentException e) {
+                close(file.content());
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+        }
+
+        long offset = start;
+        long count = end - start + 1;
+        StreamingResponseBody body = out -> {
+            try (InputStream in = file.content()) {
+                in.skipNBytes(offset);
+                byte[] buf = new byte[DOWNLOAD_BUFFER_SIZE];
+                for (long left = count; left > 0; ) {
+                    int n = in.read(buf, 0, (int) Math.min(buf.length, left));
+                    if (n < 0) throw new EOFException("Stored file ended " + left + " bytes early");
+                    out.write(buf, 0, n);
+                    left -= n;
+                }
+                // the whole file: reading its end is what lets the read-through cache keep the copy
+                if (count == length) in.read();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + metadata.getFileName() + "\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(etag)
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+                .contentLength(count);
+        if (lastModified >= 0) response.lastModified(lastModified);
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        return response.body(body);
+    }
+
+    // If-None-Match wins over If-Modified-Since
+    private static boolean notModified(HttpHeaders headers, String etag, long lastModified) {
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag));
+        }
+        long ifModifiedSince = headers.getIfModifiedSince();
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    // If-Range with another validator, several ranges or a malformed header: the whole file is sent
+    private static List<HttpRange> rangesOf(HttpHeaders headers, String etag) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) return List.of();
+        try {
+            return headers.getRange();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private static void close(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // nothing was read
+        }
     }
 }
@@ -1,12 +1,22 @@
 package com.example.rawloader.controller;
 
-import com.example.rawloader.model.RawLoaderTransformed;
-import com.example.rawloader.repository.RawLoaderTransformedRepository;
+import com.example.rawloader.dto.TransformedPageDTO;
+import com.example.rawloader.model.TransformJob;
+import com.example.rawloader.service.api.TransformJobService;
 import com.example.rawloader.service.api.TransformService;
+import com.example.rawloader.service.api.TransformedDataService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -16,30 +26,79 @@ import java.util.Map;
 public class RawLoaderTransformController {
 
     private final TransformService transformService;
-    private final RawLoaderTransformedRepository transformedRepository;
+    private final TransformJobService transformJobService;
+    private final TransformedDataService transformedDataService;
+    private final ObjectMapper objectMapper;
 
-    // Run transformation and return count
+    // Queue transformation as a background job (poll GET /jobs/{jobId});
+    // sync=true keeps the old behaviour of running on the request thread and returning the count
     @PostMapping("/transform/{metadataId}")
-    public ResponseEntity<Map<String, Object>> transform(@PathVariable String metadataId) {
-        int inserted = transformService.transform(metadataId);
-        return ResponseEntity.ok(Map.of(
+    public ResponseEntity<Map<String, Object>> transform(@PathVariable String metadataId,
+                                                         @RequestParam(defaultValue = "false") boolean sync) {
+        if (sync) {
+            int inserted = transformService.transform(metadataId);
+            return ResponseEntity.ok(Map.of(
+                    "metadataId", metadataId,
+                    "inserted", inserted,
+                    "message", "Transformation completed"
+            ));
+        }
+        TransformJob job = transformJobService.submit(metadataId);
+        return ResponseEntity.accepted().body(Map.of(
                 "metadataId", metadataId,
-                "inserted", inserted,
-                "message", "Transformation completed"
+                "jobId", job.getId(),
+                "status", job.getStatus(),
+                "message", "Transformation queued"
         ));
     }
 
-    // Preview first N rows without writing
+    // Preview first N rows without writing; spread=true returns rows sampled across the file
     @GetMapping("/preview/{metadataId}")
     public ResponseEntity<List<Map<String, Object>>> preview(
             @PathVariable String metadataId,
-            @RequestParam(defaultValue = "10") int limit) {
-        return ResponseEntity.ok(transformService.preview(metadataId, limit));
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean spread) {
+        return ResponseEntity.ok(transformService.preview(metadataId, limit, spread));
     }
 
-    // Fetch transformed rows written to DB
+    // Fetch transformed rows written to DB: every row as a JSON array, streamed from a DB cursor
+    @GetMapping(value = "/transformed/{metadataId}", params = {"!after", "!size"})
+    public ResponseEntity<StreamingResponseBody> getTransformed(@PathVariable String metadataId) {
+        return stream(metadataId, MediaType.APPLICATION_JSON, true);
+    }
+
+    // Opt in to keyset pages with ?size= and/or ?after=<nextCursor>: {items, nextCursor}
     @GetMapping("/transformed/{metadataId}")
-    public ResponseEntity<List<RawLoaderTransformed>> getTransformed(@PathVariable String metadataId) {
-        return ResponseEntity.ok(transformedRepository.findByMetadataId(metadataId));
+    public ResponseEntity<TransformedPageDTO> getTransformedPage(@PathVariable String metadataId,
+                                                                 @RequestParam(required = false) String after,
+                                                                 @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(transformedDataService.page(metadataId, after, size));
+    }
+
+    // Every row as NDJSON, one JSON document per line
+    @GetMapping(value = "/transformed/{metadataId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransformed(@PathVariable String metadataId) {
+        return stream(metadataId, MediaType.APPLICATION_NDJSON, false);
+    }
+
+    // Writes block while the client is slow, so the cursor is only read as fast as the client consumes.
+    private ResponseEntity<StreamingResponseBody> stream(String metadataId, MediaType type, boolean array) {
+        // no flush per row: the generator and servlet buffers decide when bytes go out
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                if (array) gen.writeStartArray();
+                transformedDataService.forEach(metadataId, row -> {
+                    try {
+                        writer.writeValue(gen, row);
+                        if (!array) gen.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (array) gen.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(type).body(body);
     }
 }
@@ -0,0 +1,27 @@
+package com.example.rawloader.controller;
+
+import com.example.rawloader.model.TransformJob;
+import com.example.rawloader.service.api.TransformJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/raw-loader/jobs")
+@RequiredArgsConstructor
+public class TransformJobController {
+
+    private final TransformJobService transformJobService;
+
+    // Job status: rows processed, rows/sec, ETA
+    @GetMapping("/{jobId}")
+    public ResponseEntity<TransformJob> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(transformJobService.getJob(jobId));
+    }
+
+    // Request cancellation of a queued or running job
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<TransformJob> cancel(@PathVariable String jobId) {
+        return ResponseEntity.accepted().body(transformJobService.cancel(jobId));
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.rawloader.dto;
+
+import com.example.rawloader.model.RawLoaderTransformed;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransformedPageDTO {
+    private List<RawLoaderTransformed> items;
+    // pass as ?after= to get the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,18 @@
+package com.example.rawloader.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadPageDTO {
+    private List<UploadSummary> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -1,6 +1,8 @@
 package com.example.rawloader.dto;
 
+import com.example.rawloader.model.RawLoaderMetadata;
 import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.model.ValidationErrorGroup;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,4 +20,24 @@ public class UploadResponseDTO {
     // Optional: add fileName / validationStatus if you like
     private String fileName;
     private String validationStatus;
+    // errors holds the first ones only; all of them via GET /api/raw-loader/{id}/errors
+    private long errorCount;
+    private List<ValidationErrorGroup> errorGroups;
+    private boolean duplicate; // identical file already uploaded for this config: its result is returned
+
+    public UploadResponseDTO(String metadataId, boolean valid, List<ValidationError> errors, String message,
+                             String fileName, String validationStatus) {
+        this(metadataId, valid, errors, message, fileName, validationStatus, errors == null ? 0 : errors.size(), null, false);
+    }
+
+    /**
+     * The response of an upload that was already processed.
+     */
+    public static UploadResponseDTO of(RawLoaderMetadata metadata, String message, boolean duplicate) {
+        boolean valid = "VALIDATED".equals(metadata.getValidationStatus());
+        List<ValidationError> errors = metadata.getErrorMessages() == null ? List.of() : metadata.getErrorMessages();
+        long errorCount = metadata.getErrorCount() != null ? metadata.getErrorCount() : errors.size();
+        return new UploadResponseDTO(metadata.getId(), valid, errors, message,
+                metadata.getFileName(), metadata.getValidationStatus(), errorCount, metadata.getErrorGroups(), duplicate);
+    }
 }
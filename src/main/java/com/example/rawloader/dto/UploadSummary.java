@@ -0,0 +1,19 @@
+package com.example.rawloader.dto;
+
+import java.time.Instant;
+
+/**
+ * Closed projection of RawLoaderMetadata for upload listings: only these fields are read,
+ * never the error list or the preview sample.
+ */
+public interface UploadSummary {
+    String getId();
+    String getFileName();
+    Long getPartnerId();
+    String getConfigId();
+    Instant getUploadDate();
+    String getFileFormat();
+    String getValidationStatus();
+    Integer getRowCount();
+    Integer getTransformedRows();
+}
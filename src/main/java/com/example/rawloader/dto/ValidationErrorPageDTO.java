@@ -0,0 +1,18 @@
+package com.example.rawloader.dto;
+
+import com.example.rawloader.model.ValidationError;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationErrorPageDTO {
+    private List<ValidationError> items;
+    private long totalErrors;
+    // pass as ?after= to get the next page; null on the last page
+    private Long nextCursor;
+}
@@ -2,10 +2,12 @@ package com.example.rawloader.exception;
 
 import com.example.rawloader.model.ValidationError;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.util.List;
@@ -37,6 +39,30 @@ public class GlobalExceptionHandler {
         ));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Object> handleTooManyRequests(TooManyRequestsException ex) {
+        log.warn("Request rejected: {}", ex.getReason());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(Map.of(
+                        "timestamp", Instant.now(),
+                        "status", 429,
+                        "error", "Too Many Requests",
+                        "message", ex.getReason()
+                ));
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Object> handleStatus(ResponseStatusException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        return ResponseEntity.status(status).body(Map.of(
+                "timestamp", Instant.now(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", String.valueOf(ex.getReason())
+        ));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAll(Exception ex) {
         log.error("Unhandled exception", ex);
@@ -0,0 +1,26 @@
+package com.example.rawloader.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One column of a {@link TransformedChunk}. Only the fields of its encoding are set.
+ */
+@Data
+public class ChunkColumn {
+
+    public enum Encoding {
+        NUMBER,     // numbers: little-endian float64 per row
+        DICTIONARY, // dictionary + codes: index of each row's string, codeWidth (1, 2 or 4) bytes per row
+        VALUES      // values: plain list, for mixed or other types
+    }
+
+    private Encoding encoding;
+    private byte[] nulls;       // bit per row, set when the value is null; absent when there are none
+    private byte[] numbers;
+    private List<String> dictionary;
+    private byte[] codes;
+    private int codeWidth;
+    private List<Object> values;
+}
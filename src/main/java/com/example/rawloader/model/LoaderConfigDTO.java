@@ -14,5 +14,8 @@ public class LoaderConfigDTO {
     private String name;
     private String status;
     private List<LoaderColumnDTO> columnMappings;
-    // jslt, postTransformJsonSchema etc can be added as needed
+    private StorageLayout storageLayout; // ROWS (default) | COLUMNAR
+    private Long version;                // bumped by the config service on every change
+    private String jslt;                 // optional template applied to each mapped row (profile jslt)
+    // postTransformJsonSchema etc can be added as needed
 }
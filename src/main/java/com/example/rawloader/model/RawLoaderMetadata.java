@@ -1,6 +1,7 @@
 package com.example.rawloader.model;
 
 import lombok.Data;
+import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -17,7 +18,32 @@ public class RawLoaderMetadata {
     private String configId;
     private Instant uploadDate;
     private String gridFsId;
+    private Long fileSize;           // bytes
+    private String contentHash;      // SHA-256 of the file, finds repeat uploads
+    private Long configVersion;      // version of the config the file was validated against
+    private String fileFormat;       // EXCEL | CSV | TSV
     private String validationStatus; // VALIDATED | FAILED
-    private List<ValidationError> errorMessages;
+    private List<ValidationError> errorMessages;   // first errors only; all of them in raw_loader_validation_errors
+    private Long errorCount;
+    private List<ValidationErrorGroup> errorGroups;
     private Integer rowCount;
+    private Integer transformedRows; // set when transformed at upload
+    private StorageLayout storageLayout; // layout of the transformed rows, null = ROWS
+    private String transformRunId;   // run whose transformed rows are kept, null for rows stored before runs were tracked
+    private RowSample sample;        // converted rows for previews
+    private TransformCheckpoint transformCheckpoint; // set while a transform is unfinished, resumed by the next run
+
+    /**
+     * Metadata of a new upload. Its id is known up front so rows converted during validation can reference it.
+     */
+    public static RawLoaderMetadata newUpload(String fileName, Long partnerId, String configId, String fileFormat) {
+        RawLoaderMetadata metadata = new RawLoaderMetadata();
+        metadata.setId(new ObjectId().toHexString());
+        metadata.setFileName(fileName);
+        metadata.setPartnerId(partnerId);
+        metadata.setConfigId(configId);
+        metadata.setUploadDate(Instant.now());
+        metadata.setFileFormat(fileFormat);
+        return metadata;
+    }
 }
@@ -13,6 +13,8 @@ public class RawLoaderTransformed {
     @Id
     private String id;
     private String metadataId;
+    private Long row;           // 0-based position among the transformed rows: rewriting a row replaces it
+    private String runId;       // transform run (or upload) that wrote the row
     private Map<String, Object> transformedRow;
     private Instant insertedAt = Instant.now();
 }
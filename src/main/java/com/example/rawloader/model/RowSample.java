@@ -0,0 +1,20 @@
+package com.example.rawloader.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converted rows captured while the upload was validated, used to answer previews without re-reading the file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RowSample {
+    private List<Map<String, Object>> head;    // first rows of the file
+    private List<Map<String, Object>> spread;  // uniform random sample over the whole file, in row order
+    private long rowsSeen;                     // non-blank data rows the sample was drawn from
+}
@@ -0,0 +1,15 @@
+package com.example.rawloader.model;
+
+/**
+ * How transformed rows of an upload are stored.
+ */
+public enum StorageLayout {
+    /** one {@link RawLoaderTransformed} document per row */
+    ROWS,
+    /** {@link TransformedChunk} documents holding thousands of rows column by column */
+    COLUMNAR;
+
+    public static StorageLayout orDefault(StorageLayout layout) {
+        return layout == null ? ROWS : layout;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.rawloader.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One validation error of an upload, spilled so the full list never has to fit in the metadata document.
+ */
+@Document(collection = "raw_loader_validation_errors")
+@Data
+public class StoredValidationError {
+    @Id
+    private String id;
+    private String metadataId;
+    private long seq;        // position in the error list, the keyset for pages
+    private Integer row;
+    private String field;
+    private String message;
+}
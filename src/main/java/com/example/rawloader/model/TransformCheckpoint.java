@@ -0,0 +1,22 @@
+package com.example.rawloader.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Progress of an unfinished transform, kept on the metadata until the transform completes.
+ * Everything up to {@code sourceRow} is written as transformed rows {@code 0..rows-1}.
+ * The run holding the lease is the only one writing; another run starts once it ended or the lease ran out.
+ */
+@Data
+public class TransformCheckpoint {
+    private String runId;            // rows of other runs are removed when this one completes
+    private int sourceRow;           // last file row (0-based, header = 0) whose output is written
+    private long rows;               // transformed rows written, i.e. the position of the next one
+    private StorageLayout layout;
+    private Long configVersion;      // a changed config restarts from the top
+    private String owner;            // the transform call holding the lease
+    private Instant leaseUntil;      // renewed while the run makes progress
+    private Instant updatedAt;
+}
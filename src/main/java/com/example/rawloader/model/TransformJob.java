@@ -0,0 +1,28 @@
+package com.example.rawloader.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "transform_jobs")
+@Data
+public class TransformJob {
+    @Id
+    private String id;
+    private String metadataId;
+    private Long partnerId;
+    private String status;          // QUEUED | RUNNING | COMPLETED | FAILED | CANCELLED | INTERRUPTED
+    private long rowsProcessed;
+    private Integer totalRows;      // from the upload validation pass, null if unknown
+    private Double rowsPerSecond;
+    private Long etaSeconds;
+    private Integer insertedRows;
+    private boolean cancelRequested;
+    private String errorMessage;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant heartbeatAt;    // renewed by the node holding the job while it is queued or running
+}
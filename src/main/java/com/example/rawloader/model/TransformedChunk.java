@@ -0,0 +1,26 @@
+package com.example.rawloader.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A block of consecutive transformed rows in column-oriented form (layout {@link StorageLayout#COLUMNAR}).
+ * Key names are stored once per chunk; {@code columns} is parallel to {@code keys}.
+ */
+@Document(collection = "raw_loader_transformed_chunks")
+@Data
+public class TransformedChunk {
+    @Id
+    private String id;
+    private String metadataId;
+    private long firstRow;      // 0-based position of the first row in the upload; rewriting a chunk replaces it
+    private int rowCount;
+    private String runId;       // transform run (or upload) that wrote the chunk
+    private List<String> keys;
+    private List<ChunkColumn> columns;
+    private Instant insertedAt = Instant.now();
+}
@@ -0,0 +1,13 @@
+package com.example.rawloader.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadChunk {
+    private int size;
+    private String sha256;
+}
@@ -0,0 +1,38 @@
+package com.example.rawloader.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A resumable upload. Chunks are written straight into the GridFS chunks of {@code gridFsId};
+ * the GridFS file document is only written on complete, once every chunk is there.
+ */
+@Document(collection = "raw_loader_upload_sessions")
+@Data
+public class UploadSession {
+    @Id
+    private String id;
+    private Long partnerId;
+    private String configId;
+    private String fileName;
+    private String contentType;
+    private String fileFormat;       // EXCEL | CSV | TSV
+    private boolean transform;
+    private int chunkSize;
+    private String gridFsId;
+    private String metadataId;       // set when validation finished
+    private String status;           // OPEN | SEALING | COMPLETED | VALIDATED | FAILED | ABORTED | EXPIRED
+    private String message;
+    private Map<String, UploadChunk> chunks; // by chunk number: resume by sending the missing ones
+    private Integer chunkCount;      // set on complete
+    private Long length;
+    private boolean ingesting;       // a node is validating the chunks; false while none had heap for it or it gave up waiting for more
+    private Instant ingestHeartbeatAt; // renewed by the validating node; a stale one means that node stopped
+    private Instant lastChunkAt;
+    private Instant createdAt;
+    private Instant expiresAt;
+}
@@ -0,0 +1,20 @@
+package com.example.rawloader.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * All errors with the same column and message, e.g. "Amount: Invalid number" x 18 000.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationErrorGroup {
+    private String field;
+    private String message;
+    private long count;
+    private List<Integer> sampleRows; // first rows with this error
+}
@@ -0,0 +1,26 @@
+package com.example.rawloader.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of one validation pass over an uploaded file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationResult {
+    private List<ValidationError> errors;  // capped, see errorCount
+    private int rowCount;   // data rows read (header excluded)
+    private RowSample sample; // null when the header could not be bound
+    private long errorCount;
+    private List<ValidationErrorGroup> errorGroups;
+    private boolean aborted; // reading stopped at the error limit, rowCount is partial
+
+    public boolean isValid() {
+        return errors == null || errors.isEmpty();
+    }
+}
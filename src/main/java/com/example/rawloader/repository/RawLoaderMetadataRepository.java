@@ -1,7 +1,24 @@
 package com.example.rawloader.repository;
 
+import com.example.rawloader.dto.UploadSummary;
 import com.example.rawloader.model.RawLoaderMetadata;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Optional;
+
 public interface RawLoaderMetadataRepository extends MongoRepository<RawLoaderMetadata, String> {
+
+    Page<UploadSummary> findByPartnerId(Long partnerId, Pageable pageable);
+
+    Page<UploadSummary> findByPartnerIdAndValidationStatus(Long partnerId, String validationStatus, Pageable pageable);
+
+    Page<UploadSummary> findByPartnerIdAndConfigId(Long partnerId, String configId, Pageable pageable);
+
+    Page<UploadSummary> findByPartnerIdAndConfigIdAndValidationStatus(Long partnerId, String configId,
+                                                                    String validationStatus, Pageable pageable);
+
+    Optional<RawLoaderMetadata> findFirstByPartnerIdAndConfigIdAndContentHashOrderByUploadDateDesc(Long partnerId, String configId,
+                                                                                                   String contentHash);
 }
@@ -0,0 +1,7 @@
+package com.example.rawloader.repository;
+
+import com.example.rawloader.model.TransformJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface TransformJobRepository extends MongoRepository<TransformJob, String> {
+}
@@ -0,0 +1,31 @@
+package com.example.rawloader.service.api;
+
+import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.model.UploadChunk;
+import com.example.rawloader.model.UploadSession;
+
+/**
+ * Resumable uploads: initiate, PUT numbered chunks in any order (again after a dropped connection), complete.
+ * Validation starts at initiate when memory is free and reads the chunks as they arrive, else on complete.
+ */
+public interface ChunkedUploadService {
+
+    UploadSession initiate(Long partnerId, String configId, String fileName, String contentType, boolean transform);
+
+    /**
+     * Stores chunk {@code number}; sending it again replaces it until complete, after that it is 409.
+     * @param sha256 hex checksum of the chunk as sent by the client, verified when given
+     */
+    UploadChunk putChunk(String sessionId, int number, byte[] data, String sha256);
+
+    UploadSession getSession(String sessionId);
+
+    /**
+     * Seals the file once chunks 0..n are all there and waits a while for the validation result;
+     * validation that has not started, or stopped for lack of chunks, starts here.
+     * @throws com.example.rawloader.exception.TooManyRequestsException when it cannot get memory within the admission max-wait
+     */
+    UploadResponseDTO complete(String sessionId);
+
+    void abort(String sessionId);
+}
@@ -15,8 +15,27 @@ public interface FileStorageService {
      */
     InputStream downloadById(String gridFsId);
 
+    /**
+     * Opens a stored file with its length; skipping on the stream seeks (to the right GridFS chunk)
+     * instead of reading the skipped bytes.
+     */
+    StoredFile open(String gridFsId);
+
     /**
      * Download raw file by metadata id (service will look up metadata.gridFsId).
      */
     InputStream downloadByMetadataId(String metadataId);
+
+    /**
+     * Whether a file is stored under this id.
+     */
+    boolean exists(String gridFsId);
+
+    /**
+     * Delete a stored file; unknown ids are ignored.
+     */
+    void delete(String gridFsId);
+
+    record StoredFile(long length, InputStream content) {
+    }
 }
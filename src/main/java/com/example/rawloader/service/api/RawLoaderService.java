@@ -1,10 +1,42 @@
 package com.example.rawloader.service.api;
 
+import com.example.rawloader.dto.UploadPageDTO;
 import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.dto.ValidationErrorPageDTO;
 import com.example.rawloader.model.RawLoaderMetadata;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface RawLoaderService {
-    UploadResponseDTO handleUpload(MultipartFile file, Long partnerId, String configId);
+    default UploadResponseDTO handleUpload(MultipartFile file, Long partnerId, String configId) {
+        return handleUpload(file, partnerId, configId, false);
+    }
+
+    default UploadResponseDTO handleUpload(MultipartFile file, Long partnerId, String configId, boolean transform) {
+        return handleUpload(file, partnerId, configId, transform, false);
+    }
+
+    /**
+     * @param transform also convert the rows during validation and write them to
+     *                  raw_loader_transformed_data when the file is valid
+     * @param force     process the file even when the same file was already uploaded for this config
+     */
+    UploadResponseDTO handleUpload(MultipartFile file, Long partnerId, String configId, boolean transform, boolean force);
+
+    /**
+     * Validates (and optionally transforms) an upload while its bytes are being stored, then saves its metadata.
+     * Shared by multipart uploads and chunked upload sessions; failures are answered, not thrown.
+     */
+    UploadResponseDTO ingest(RawLoaderMetadata metadata, UploadContent content, boolean transform);
+
     RawLoaderMetadata getMetadata(String id);
+
+    /**
+     * A partner's uploads, newest first, optionally narrowed to one config and/or validation status.
+     */
+    UploadPageDTO listUploads(Long partnerId, String configId, String validationStatus, int page, int size);
+
+    /**
+     * All validation errors of an upload in row order, {@code size} at a time; {@code after} is the previous page's cursor.
+     */
+    ValidationErrorPageDTO listErrors(String metadataId, Long after, Integer size);
 }
@@ -0,0 +1,20 @@
+package com.example.rawloader.service.api;
+
+import com.example.rawloader.model.TransformJob;
+
+public interface TransformJobService {
+
+    /**
+     * Queue a transform of metadataId and return immediately.
+     * @throws com.example.rawloader.exception.TooManyRequestsException when the partner has too many active jobs
+     * @throws org.springframework.web.server.ResponseStatusException 409 when the upload already has an active job
+     */
+    TransformJob submit(String metadataId);
+
+    TransformJob getJob(String jobId);
+
+    /**
+     * Request cancellation; a running transform stops at its next progress report.
+     */
+    TransformJob cancel(String jobId);
+}
@@ -0,0 +1,30 @@
+package com.example.rawloader.service.api;
+
+/**
+ * Progress callback for long running transforms.
+ */
+@FunctionalInterface
+public interface TransformProgress {
+
+    TransformProgress NONE = rowsProcessed -> true;
+
+    /**
+     * Called on the transforming thread as rows are converted.
+     * @return false to cancel the transform (rows up to the last checkpoint are kept; the next run resumes there)
+     */
+    boolean onRows(long rowsProcessed);
+
+    /**
+     * Polled while the transform waits for memory to start.
+     * @return false to cancel it before it started
+     */
+    default boolean onWaiting() {
+        return true;
+    }
+
+    /**
+     * Called once the transform got its memory and starts reading the file.
+     */
+    default void onStarted() {
+    }
+}
@@ -9,12 +9,29 @@ public interface TransformService {
      * Transform a validated file referenced by metadataId,
      * applying mapping from loader config, and insert JSON rows into DB.
      * @return count of inserted rows
+     * @throws com.example.rawloader.exception.TooManyRequestsException when no memory is free within the admission max-wait
      */
     int transform(String metadataId);
 
+    /**
+     * Same as {@link #transform(String)} for background jobs, reporting progress and honouring cancellation.
+     * Waits for memory as long as it takes instead of answering 429.
+     * One transform of an upload runs at a time; the rows it writes are seen by readers once it completes.
+     * @throws java.util.concurrent.CancellationException when progress asked to stop
+     * @throws org.springframework.web.server.ResponseStatusException 409 while another transform of the upload runs
+     */
+    int transform(String metadataId, TransformProgress progress);
+
     /**
      * Preview transformed data (no DB write).
      * Returns first N transformed rows.
      */
-    List<Map<String, Object>> preview(String metadataId, int limit);
+    default List<Map<String, Object>> preview(String metadataId, int limit) {
+        return preview(metadataId, limit, false);
+    }
+
+    /**
+     * @param spread rows sampled across the whole file instead of the first ones
+     */
+    List<Map<String, Object>> preview(String metadataId, int limit, boolean spread);
 }
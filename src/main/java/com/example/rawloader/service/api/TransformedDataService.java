@@ -0,0 +1,27 @@
+package com.example.rawloader.service.api;
+
+import com.example.rawloader.dto.TransformedPageDTO;
+import com.example.rawloader.model.RawLoaderTransformed;
+
+import java.util.function.Consumer;
+
+/**
+ * Read access to transformed rows of one upload.
+ */
+public interface TransformedDataService {
+
+    /**
+     * Keyset page in row order.
+     * @param after cursor from the previous page, null for the first page
+     * @param size  page size, capped by rawloader.read.max-page-size
+     * @throws com.example.rawloader.exception.ResourceNotFoundException when there is no such upload
+     */
+    TransformedPageDTO page(String metadataId, String after, Integer size);
+
+    /**
+     * Streams every row in order from a database cursor; memory does not depend on the row count.
+     * @return number of rows handed to {@code sink}
+     * @throws com.example.rawloader.exception.ResourceNotFoundException when there is no such upload
+     */
+    long forEach(String metadataId, Consumer<RawLoaderTransformed> sink);
+}
@@ -0,0 +1,36 @@
+package com.example.rawloader.service.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The bytes of one upload as the ingest sees them: a stream to validate and the GridFS file they end up in.
+ */
+public interface UploadContent {
+
+    /**
+     * Starts storing the bytes if that is not done elsewhere; called once, before anything else.
+     */
+    void start() throws IOException;
+
+    InputStream validationStream();
+
+    /**
+     * Completes with the GridFS id once every byte is stored.
+     */
+    CompletableFuture<String> stored();
+
+    /**
+     * Closes the streams from any thread, so the validation and the GridFS write stop at their next read,
+     * and removes what this content stored by itself.
+     */
+    void abort();
+
+    long size();
+
+    /**
+     * SHA-256 of the whole file when it is known after validation, null otherwise.
+     */
+    String contentHash();
+}
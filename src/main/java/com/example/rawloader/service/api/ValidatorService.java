@@ -2,11 +2,34 @@ package com.example.rawloader.service.api;
 
 import com.example.rawloader.model.LoaderConfigDTO;
 import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.model.ValidationResult;
+import com.example.rawloader.util.SheetFormat;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ValidatorService {
 
-    List<ValidationError> validate(InputStream excelInputStream, LoaderConfigDTO config);
+    /**
+     * Validates the sheet and, when {@code converted} is given, also converts its rows in the same pass.
+     * Converted rows are handed over in row order until the first validation error is found.
+     * The result keeps only the first errors; when {@code spill} is given it receives all of them, in batches.
+     */
+    ValidationResult validate(InputStream inputStream, SheetFormat format, LoaderConfigDTO config,
+                              Consumer<List<Map<String, Object>>> converted, Consumer<List<ValidationError>> spill);
+
+    default ValidationResult validate(InputStream inputStream, SheetFormat format, LoaderConfigDTO config,
+                                      Consumer<List<Map<String, Object>>> converted) {
+        return validate(inputStream, format, config, converted, null);
+    }
+
+    default ValidationResult validate(InputStream inputStream, SheetFormat format, LoaderConfigDTO config) {
+        return validate(inputStream, format, config, null);
+    }
+
+    default List<ValidationError> validate(InputStream excelInputStream, LoaderConfigDTO config) {
+        return validate(excelInputStream, SheetFormat.EXCEL, config).getErrors();
+    }
 }
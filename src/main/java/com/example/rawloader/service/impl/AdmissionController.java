@@ -0,0 +1,296 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.exception.TooManyRequestsException;
+import com.example.rawloader.util.SheetFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Admits uploads and transforms against a node-wide heap budget. Each request reserves an estimate
+ * of what parsing its file costs; when the budget is used up it waits in a per-partner queue, and
+ * partners are served round robin so one partner's backlog cannot starve the others. A request
+ * whose turn has come is not overtaken by smaller ones behind it. For HTTP callers a full queue or
+ * a wait longer than {@code maxWait} is answered with 429 and Retry-After; background work waits
+ * its turn until admitted or cancelled.
+ */
+@Component
+public class AdmissionController {
+
+    private static final long CANCEL_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RawLoaderProperties.Admission settings;
+    private final long budget;
+    private final ReentrantLock lock = new ReentrantLock();
+    // partner → waiting requests in arrival order; map order is the round robin turn, guarded by lock
+    private final Map<Long, Deque<Waiter>> queues = new LinkedHashMap<>();
+    private long reserved;
+    private int queued;
+    private int queuedBounded; // the queued requests limited by maxQueued
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+
+    @Autowired
+    public AdmissionController(RawLoaderProperties properties) {
+        this(properties.getAdmission(), Runtime.getRuntime().maxMemory());
+    }
+
+    AdmissionController(RawLoaderProperties.Admission settings, long maxHeapBytes) {
+        this.settings = settings;
+        this.budget = Math.max(1, settings.getBudgetBytes() > 0
+                ? settings.getBudgetBytes()
+                : (long) (maxHeapBytes * settings.getBudgetFraction()));
+    }
+
+    /**
+     * Heap needed to validate or transform a file of {@code fileBytes} (null = unknown).
+     */
+    public long estimate(SheetFormat format, Long fileBytes) {
+        long size = fileBytes != null && fileBytes >= 0 ? fileBytes : settings.getUnknownFileBytes();
+        double factor = format == SheetFormat.EXCEL ? settings.getExcelHeapFactor() : settings.getDelimitedHeapFactor();
+        return settings.getBaseBytes() + (long) Math.ceil(size * factor);
+    }
+
+    /**
+     * Reserves {@code bytes} of the budget, waiting for room when needed; close the permit when done.
+     * @throws TooManyRequestsException when the queue is full or no room was made within {@code maxWait}
+     */
+    public Permit admit(Long partnerId, long bytes) {
+        return acquire(partnerId, bytes, true, () -> false);
+    }
+
+    /**
+     * Reserves {@code bytes} only if that is possible right away, ahead of nobody; null otherwise.
+     */
+    public Permit tryAdmit(Long partnerId, long bytes) {
+        long need = need(bytes);
+        lock.lock();
+        try {
+            if (queued > 0 || reserved + need > budget) return null;
+            reserved += need;
+            admitted.increment();
+            return new Permit(need);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #admit} for background work: waits in turn for as long as it takes, without counting
+     * against {@code maxQueued}; {@code cancelled} is polled every second, outside the lock.
+     * @throws CancellationException when cancelled before room was made
+     */
+    public Permit await(Long partnerId, long bytes, BooleanSupplier cancelled) {
+        return acquire(partnerId, bytes, false, cancelled);
+    }
+
+    // bounded requests are limited by maxQueued and maxWait; the others wait until admitted or cancelled
+    private Permit acquire(Long partnerId, long bytes, boolean bounded, BooleanSupplier cancelled) {
+        long need = need(bytes);
+        lock.lock();
+        try {
+            if (queued == 0 && reserved + need <= budget) {
+                reserved += need;
+                admitted.increment();
+                return new Permit(need);
+            }
+            if (bounded && queuedBounded >= settings.getMaxQueued()) {
+                rejectedQueueFull.increment();
+                throw new TooManyRequestsException("Memory budget in use, admission queue full", settings.getRetryAfterSeconds());
+            }
+
+            Waiter waiter = new Waiter(partnerId, need, bounded, lock.newCondition());
+            queues.computeIfAbsent(partnerId, k -> new ArrayDeque<>()).add(waiter);
+            queued++;
+            if (bounded) queuedBounded++;
+            delayed.increment();
+            long deadline = System.nanoTime() + settings.getMaxWait().toNanos();
+            boolean admittedInTurn = false;
+            try {
+                while (!waiter.granted) {
+                    if (!bounded) {
+                        waiter.ready.awaitNanos(CANCEL_CHECK_NANOS);
+                        // granted while the check ran outside the lock: admitted after all
+                        if (!waiter.granted && isCancelled(cancelled) && !waiter.granted) {
+                            throw new CancellationException("Cancelled while waiting for memory budget");
+                        }
+                        continue;
+                    }
+                    long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0) {
+                        rejectedTimeout.increment();
+                        throw new TooManyRequestsException("Memory budget in use, no room within "
+                                + settings.getMaxWait().toSeconds() + "s", settings.getRetryAfterSeconds());
+                    }
+                    waiter.ready.awaitNanos(nanos);
+                }
+                admittedInTurn = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for memory budget", e);
+            } finally {
+                if (!admittedInTurn) {
+                    if (waiter.granted) release(need);
+                    else remove(waiter);
+                }
+            }
+            admitted.increment();
+            return new Permit(need);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the caller's check may go to the database: other requests are not held up meanwhile
+    private boolean isCancelled(BooleanSupplier cancelled) {
+        lock.unlock();
+        try {
+            return cancelled.getAsBoolean();
+        } finally {
+            lock.lock();
+        }
+    }
+
+    private long need(long bytes) {
+        return Math.min(Math.max(1, bytes), budget); // larger than the budget: runs alone
+    }
+
+    public long budgetBytes() {
+        return budget;
+    }
+
+    public long reservedBytes() {
+        lock.lock();
+        try {
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Requests waiting for room, background ones included.
+     */
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long admittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * Requests that had to wait before they were admitted or rejected.
+     */
+    public long delayedCount() {
+        return delayed.sum();
+    }
+
+    public long rejectedQueueFullCount() {
+        return rejectedQueueFull.sum();
+    }
+
+    public long rejectedTimeoutCount() {
+        return rejectedTimeout.sum();
+    }
+
+    private void release(long bytes) {
+        reserved -= bytes;
+        grant();
+    }
+
+    // hands out room in turn; stops at the first partner whose next request does not fit yet
+    private void grant() {
+        while (!queues.isEmpty()) {
+            Iterator<Map.Entry<Long, Deque<Waiter>>> turn = queues.entrySet().iterator();
+            Map.Entry<Long, Deque<Waiter>> next = turn.next();
+            Deque<Waiter> waiting = next.getValue();
+            Waiter head = waiting.peek();
+            if (reserved + head.bytes > budget) return;
+
+            waiting.poll();
+            dequeued(head);
+            reserved += head.bytes;
+            head.granted = true;
+            head.ready.signal();
+            // the partner goes to the back of the rotation
+            turn.remove();
+            if (!waiting.isEmpty()) queues.put(next.getKey(), waiting);
+        }
+    }
+
+    private void remove(Waiter waiter) {
+        Deque<Waiter> waiting = queues.get(waiter.partnerId);
+        if (waiting != null && waiting.remove(waiter)) {
+            dequeued(waiter);
+            if (waiting.isEmpty()) queues.remove(waiter.partnerId);
+        }
+        grant(); // a large request leaving the head may make room for the next in turn
+    }
+
+    private void dequeued(Waiter waiter) {
+        queued--;
+        if (waiter.bounded) queuedBounded--;
+    }
+
+    private static final class Waiter {
+
+        private final Long partnerId;
+        private final long bytes;
+        private final boolean bounded;
+        private final Condition ready;
+        private boolean granted;
+
+        Waiter(Long partnerId, long bytes, boolean bounded, Condition ready) {
+            this.partnerId = partnerId;
+            this.bytes = bytes;
+            this.bounded = bounded;
+            this.ready = ready;
+        }
+    }
+
+    /**
+     * A reservation; closing it returns the bytes and admits waiting requests.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long bytes;
+        private boolean closed;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) return;
+                closed = true;
+                release(bytes);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
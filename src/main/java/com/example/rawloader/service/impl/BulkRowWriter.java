@@ -0,0 +1,120 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams documents (transformed rows or chunks) into their collection with unordered bulk inserts.
+ * One batch fills while at most one batch is being written, so memory stays flat whatever
+ * the row count. The batch size adapts to the observed insert latency (halve when slower
+ * than the target, grow by half when well under it).
+ * Not thread-safe: rows are added from the thread that merges converted batches.
+ */
+final class BulkRowWriter<T> implements AutoCloseable {
+
+    private final MongoTemplate mongoTemplate;
+    private final Executor executor;
+    private final Class<T> type;
+    private final int minBatch;
+    private final int maxBatch;
+    private final long targetNanos;
+    private final Timer insertTimer;
+
+    private int batchSize;
+    private List<T> buffer;
+    private CompletableFuture<Long> inFlight;   // completes with the insert latency in nanos
+    private int inFlightSize;
+    private long written;
+
+    BulkRowWriter(MongoTemplate mongoTemplate, Executor executor, Class<T> type, RawLoaderProperties.Writer settings,
+                  Timer insertTimer) {
+        this.mongoTemplate = mongoTemplate;
+        this.executor = executor;
+        this.type = type;
+        this.minBatch = Math.max(1, settings.getMinBatchSize());
+        this.maxBatch = Math.max(minBatch, settings.getMaxBatchSize());
+        this.targetNanos = settings.getTargetLatency().toNanos();
+        this.insertTimer = insertTimer;
+        this.batchSize = Math.min(maxBatch, Math.max(minBatch, settings.getInitialBatchSize()));
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    void add(T doc) {
+        buffer.add(doc);
+        if (buffer.size() >= batchSize) flush();
+    }
+
+    /**
+     * Writes what is left and waits for it.
+     * Can be called again after more documents were added.
+     * @return number of documents written
+     */
+    long finish() {
+        if (!buffer.isEmpty()) flush();
+        awaitInFlight();
+        return written;
+    }
+
+    /**
+     * Waits for a pending batch without throwing, so a failed transform does not leave writes running.
+     */
+    @Override
+    public void close() {
+        if (inFlight != null) {
+            try {
+                inFlight.join();
+            } catch (CompletionException ignored) {
+                // already reported by finish(), or the transform is failing anyway
+            }
+            inFlight = null;
+        }
+    }
+
+    private void flush() {
+        awaitInFlight();
+        List<T> batch = buffer;
+        buffer = new ArrayList<>(batchSize);
+        inFlightSize = batch.size();
+        inFlight = CompletableFuture.supplyAsync(() -> insert(batch), executor);
+    }
+
+    private long insert(List<T> batch) {
+        long start = System.nanoTime();
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(batch).execute();
+        long latency = System.nanoTime() - start;
+        insertTimer.record(latency, TimeUnit.NANOSECONDS);
+        return latency;
+    }
+
+    private void awaitInFlight() {
+        if (inFlight == null) return;
+        long latency;
+        try {
+            latency = inFlight.join();
+        } catch (CompletionException e) {
+            inFlight = null;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+        inFlight = null;
+        written += inFlightSize;
+        adapt(latency);
+    }
+
+    private void adapt(long latencyNanos) {
+        if (latencyNanos > targetNanos) {
+            batchSize = Math.max(minBatch, batchSize / 2);
+        } else if (latencyNanos < targetNanos / 2) {
+            batchSize = Math.min(maxBatch, batchSize + batchSize / 2);
+        }
+    }
+}
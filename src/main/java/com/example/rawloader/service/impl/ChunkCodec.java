@@ -0,0 +1,151 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.model.ChunkColumn;
+import com.example.rawloader.model.TransformedChunk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts row maps to and from {@link TransformedChunk}s. A column whose values are all doubles becomes a packed
+ * float64 array, an all-string column a dictionary with 1/2/4 byte codes, anything else a plain list.
+ * Keys missing from a row read back as null.
+ */
+final class ChunkCodec {
+
+    private ChunkCodec() {
+    }
+
+    static TransformedChunk encode(String metadataId, long firstRow, List<Map<String, Object>> rows) {
+        List<String> keys = new ArrayList<>();
+        Map<String, Boolean> seen = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            for (String key : row.keySet()) {
+                if (seen.putIfAbsent(key, Boolean.TRUE) == null) keys.add(key);
+            }
+        }
+
+        List<ChunkColumn> columns = new ArrayList<>(keys.size());
+        Object[] cells = new Object[rows.size()];
+        for (String key : keys) {
+            for (int r = 0; r < cells.length; r++) cells[r] = rows.get(r).get(key);
+            columns.add(encodeColumn(cells));
+        }
+
+        TransformedChunk chunk = new TransformedChunk();
+        chunk.setMetadataId(metadataId);
+        chunk.setFirstRow(firstRow);
+        chunk.setRowCount(rows.size());
+        chunk.setKeys(keys);
+        chunk.setColumns(columns);
+        return chunk;
+    }
+
+    static List<Map<String, Object>> decode(TransformedChunk chunk) {
+        int n = chunk.getRowCount();
+        List<String> keys = chunk.getKeys();
+        Object[][] byColumn = new Object[keys.size()][];
+        for (int c = 0; c < byColumn.length; c++) byColumn[c] = decodeColumn(chunk.getColumns().get(c), n);
+
+        int capacity = (int) (keys.size() / 0.75f) + 1;
+        List<Map<String, Object>> rows = new ArrayList<>(n);
+        for (int r = 0; r < n; r++) {
+            Map<String, Object> row = new LinkedHashMap<>(capacity);
+            for (int c = 0; c < byColumn.length; c++) row.put(keys.get(c), byColumn[c][r]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static ChunkColumn encodeColumn(Object[] cells) {
+        boolean numbers = true;
+        boolean strings = true;
+        byte[] nulls = null;
+        for (int r = 0; r < cells.length; r++) {
+            Object v = cells[r];
+            if (v == null) {
+                if (nulls == null) nulls = new byte[(cells.length + 7) >>> 3];
+                nulls[r >>> 3] |= (byte) (1 << (r & 7));
+                continue;
+            }
+            numbers &= v instanceof Double;
+            strings &= v instanceof String;
+        }
+
+        ChunkColumn column = new ChunkColumn();
+        column.setNulls(nulls);
+        if (numbers) {
+            ByteBuffer buf = ByteBuffer.allocate(cells.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (Object v : cells) buf.putDouble(v == null ? 0d : (Double) v);
+            column.setEncoding(ChunkColumn.Encoding.NUMBER);
+            column.setNumbers(buf.array());
+        } else if (strings) {
+            Map<String, Integer> index = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            int[] codes = new int[cells.length];
+            for (int r = 0; r < cells.length; r++) {
+                if (cells[r] == null) continue;
+                codes[r] = index.computeIfAbsent((String) cells[r], s -> {
+                    dictionary.add(s);
+                    return dictionary.size() - 1;
+                });
+            }
+            int width = dictionary.size() <= 0x100 ? 1 : dictionary.size() <= 0x10000 ? 2 : 4;
+            ByteBuffer buf = ByteBuffer.allocate(cells.length * width).order(ByteOrder.LITTLE_ENDIAN);
+            for (int code : codes) {
+                switch (width) {
+                    case 1 -> buf.put((byte) code);
+                    case 2 -> buf.putShort((short) code);
+                    default -> buf.putInt(code);
+                }
+            }
+            column.setEncoding(ChunkColumn.Encoding.DICTIONARY);
+            column.setDictionary(dictionary);
+            column.setCodes(buf.array());
+            column.setCodeWidth(width);
+        } else {
+            column.setEncoding(ChunkColumn.Encoding.VALUES);
+            column.setValues(new ArrayList<>(Arrays.asList(cells)));
+        }
+        return column;
+    }
+
+    private static Object[] decodeColumn(ChunkColumn column, int n) {
+        Object[] out = new Object[n];
+        byte[] nulls = column.getNulls();
+        switch (column.getEncoding()) {
+            case NUMBER -> {
+                ByteBuffer buf = ByteBuffer.wrap(column.getNumbers()).order(ByteOrder.LITTLE_ENDIAN);
+                for (int r = 0; r < n; r++) {
+                    if (!isNull(nulls, r)) out[r] = buf.getDouble(r * Double.BYTES);
+                }
+            }
+            case DICTIONARY -> {
+                ByteBuffer buf = ByteBuffer.wrap(column.getCodes()).order(ByteOrder.LITTLE_ENDIAN);
+                List<String> dictionary = column.getDictionary();
+                int width = column.getCodeWidth();
+                for (int r = 0; r < n; r++) {
+                    if (isNull(nulls, r)) continue;
+                    int code = switch (width) {
+                        case 1 -> buf.get(r) & 0xFF;
+                        case 2 -> buf.getShort(r * 2) & 0xFFFF;
+                        default -> buf.getInt(r * 4);
+                    };
+                    out[r] = dictionary.get(code);
+                }
+            }
+            case VALUES -> column.getValues().toArray(out);
+        }
+        return out;
+    }
+
+    private static boolean isNull(byte[] nulls, int r) {
+        return nulls != null && (nulls[r >>> 3] & (1 << (r & 7))) != 0;
+    }
+}
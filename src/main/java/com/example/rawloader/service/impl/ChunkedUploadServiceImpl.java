@@ -0,0 +1,556 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.exception.ResourceNotFoundException;
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.UploadChunk;
+import com.example.rawloader.model.UploadSession;
+import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.repository.RawLoaderMetadataRepository;
+import com.example.rawloader.service.api.ChunkedUploadService;
+import com.example.rawloader.service.api.RawLoaderService;
+import com.example.rawloader.service.api.UploadContent;
+import com.example.rawloader.util.ContentHash;
+import com.example.rawloader.util.SheetFormat;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resumable uploads written straight into GridFS chunk documents. The ingest (partner check, config
+ * fetch, validation) starts on the node that initiated the session and reads the chunks as they arrive,
+ * so a large CSV is mostly validated by the time the last chunk lands. It only starts there when the
+ * heap budget has room right away, and an ingest that got no chunk for {@code complete-wait} stops and
+ * returns its heap; complete starts it (again) on the node it is sent to. The validating node keeps a
+ * heartbeat on the session, so complete also takes over an ingest whose node stopped. Chunks and
+ * complete may be sent to any node: all state is in Mongo.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    static final String OPEN = "OPEN";
+    static final String SEALING = "SEALING";
+    static final String COMPLETED = "COMPLETED";
+    static final String VALIDATED = "VALIDATED";
+    static final String FAILED = "FAILED";
+    static final String ABORTED = "ABORTED";
+    static final String EXPIRED = "EXPIRED";
+
+    private static final String FILES = "fs.files";
+    private static final int MAX_CHUNK_SIZE = 15 * 1024 * 1024; // a GridFS chunk is one document
+    private static final List<String> ACTIVE = List.of(OPEN, SEALING, COMPLETED);
+
+    private final MongoTemplate mongoTemplate;
+    private final RawLoaderService rawLoaderService;
+    private final RawLoaderMetadataRepository metadataRepository;
+    private final ExecutorService ioExecutor;
+    private final RawLoaderProperties.Upload settings;
+    private final AdmissionController admission;
+    // ingests running on this node, by session id
+    private final Map<String, Ingest> running = new ConcurrentHashMap<>();
+
+    public ChunkedUploadServiceImpl(MongoTemplate mongoTemplate,
+                                    RawLoaderService rawLoaderService,
+                                    RawLoaderMetadataRepository metadataRepository,
+                                    @Qualifier("ioExecutor") ExecutorService ioExecutor,
+                                    RawLoaderProperties properties,
+                                    AdmissionController admission) {
+        this.mongoTemplate = mongoTemplate;
+        this.rawLoaderService = rawLoaderService;
+        this.metadataRepository = metadataRepository;
+        this.ioExecutor = ioExecutor;
+        this.settings = properties.getUpload();
+        this.admission = admission;
+    }
+
+    @Override
+    public UploadSession initiate(Long partnerId, String configId, String fileName, String contentType, boolean transform) {
+        SheetFormat format = SheetFormat.detect(fileName, contentType);
+
+        // ✅ Early validation only takes heap that is free right now; otherwise complete starts it, admitted by the file size.
+        // The size is only known on complete: until then the default estimate is held, and returned once chunks stop coming
+        AdmissionController.Permit permit = admission.tryAdmit(partnerId, admission.estimate(format, null));
+        try {
+            Instant now = Instant.now();
+            UploadSession session = new UploadSession();
+            session.setId(new ObjectId().toHexString());
+            session.setPartnerId(partnerId);
+            session.setConfigId(configId);
+            session.setFileName(fileName);
+            session.setContentType(contentType);
+            session.setFileFormat(format.name());
+            session.setTransform(transform);
+            session.setChunkSize(Math.max(1, Math.min(settings.getChunkSize(), MAX_CHUNK_SIZE)));
+            session.setGridFsId(new ObjectId().toHexString());
+            session.setStatus(OPEN);
+            session.setChunks(new HashMap<>());
+            session.setIngesting(permit != null);
+            if (permit != null) session.setIngestHeartbeatAt(now);
+            session.setLastChunkAt(now);
+            session.setCreatedAt(now);
+            session.setExpiresAt(now.plus(settings.getSessionTtl()));
+            mongoTemplate.insert(session);
+
+            // validation starts now and follows the chunks as they arrive
+            if (permit != null) startIngest(session, permit);
+            log.info("Upload session {} opened for partnerId={}, configId={}, file={}{}", session.getId(), partnerId, configId,
+                    fileName, permit != null ? "" : " (validation starts on complete)");
+            return session;
+        } catch (RuntimeException e) {
+            if (permit != null) permit.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public UploadChunk putChunk(String sessionId, int number, byte[] data, String sha256) {
+        UploadSession session = load(sessionId);
+        if (!OPEN.equals(session.getStatus())) throw notOpen(session);
+        if (number < 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk number must be >= 0");
+        if (data == null || data.length == 0 || data.length > session.getChunkSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk must have 1.." + session.getChunkSize() + " bytes");
+        }
+        String actual = ContentHash.sha256(data);
+        if (sha256 != null && !sha256.isBlank() && !sha256.trim().equalsIgnoreCase(actual)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Checksum mismatch for chunk " + number);
+        }
+
+        // the session is updated first and only while OPEN: once complete has started, no chunk gets past here
+        UploadChunk chunk = new UploadChunk(data.length, actual);
+        Instant now = Instant.now();
+        UpdateResult updated = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(sessionId).and("status").is(OPEN)),
+                new Update().set("chunks." + number, chunk).set("lastChunkAt", now).set("expiresAt", now.plus(settings.getSessionTtl())),
+                UploadSession.class);
+        if (updated.getMatchedCount() == 0) throw notOpen(load(sessionId));
+
+        // ✅ Straight into the GridFS chunk collection; a resent chunk replaces the earlier copy until complete seals it
+        ObjectId filesId = new ObjectId(session.getGridFsId());
+        try {
+            mongoTemplate.getCollection(GridFsChunkStream.CHUNKS).replaceOne(
+                    Filters.and(Filters.eq("files_id", filesId), Filters.eq("n", number), Filters.ne("sealed", true)),
+                    new Document("files_id", filesId).append("n", number).append("data", new Binary(data)).append("sha256", actual),
+                    new ReplaceOptions().upsert(true));
+        } catch (MongoWriteException e) {
+            // the unique (files_id, n) index turns the upsert next to a sealed chunk into a duplicate key
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Chunk " + number + " is sealed: the upload was completed");
+            }
+            throw e;
+        }
+        return chunk;
+    }
+
+    @Override
+    public UploadSession getSession(String sessionId) {
+        return load(sessionId);
+    }
+
+    @Override
+    public UploadResponseDTO complete(String sessionId) {
+        UploadSession session = load(sessionId);
+        if (OPEN.equals(session.getStatus())) {
+            session = seal(session);
+        }
+        if (ABORTED.equals(session.getStatus()) || EXPIRED.equals(session.getStatus())) throw notOpen(session);
+        if (COMPLETED.equals(session.getStatus()) && (!session.isIngesting() || isStale(session))) {
+            session = resume(session);
+        }
+        return awaitResult(session);
+    }
+
+    @Override
+    public void abort(String sessionId) {
+        UpdateResult updated = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(sessionId).and("status").in(ACTIVE)),
+                new Update().set("status", ABORTED), UploadSession.class);
+        UploadSession session = load(sessionId);
+        if (updated.getMatchedCount() == 0) {
+            if (VALIDATED.equals(session.getStatus()) || FAILED.equals(session.getStatus())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload already finished");
+            }
+            return;
+        }
+        stopLocal(sessionId);
+        deleteFile(session.getGridFsId());
+        log.info("Upload session {} aborted", sessionId);
+    }
+
+    /**
+     * Expires sessions that stopped receiving chunks and removes their chunks; forgets finished sessions a TTL later.
+     */
+    @Scheduled(fixedDelayString = "${rawloader.upload.session-sweep-interval:PT10M}")
+    public void sweep() {
+        Instant now = Instant.now();
+        List<UploadSession> stale = mongoTemplate.find(
+                Query.query(Criteria.where("status").in(ACTIVE).and("expiresAt").lt(now)), UploadSession.class);
+        for (UploadSession session : stale) {
+            UpdateResult updated = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(session.getId()).and("status").in(ACTIVE).and("expiresAt").lt(now)),
+                    new Update().set("status", EXPIRED), UploadSession.class);
+            if (updated.getMatchedCount() == 0) continue;
+            stopLocal(session.getId());
+            deleteFile(session.getGridFsId());
+            log.info("Upload session {} expired", session.getId());
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("status").nin(ACTIVE)
+                .and("expiresAt").lt(now.minus(settings.getSessionTtl()))), UploadSession.class);
+    }
+
+    /**
+     * Keeps the ingests of this node alive in the upload sessions.
+     */
+    @Scheduled(fixedDelayString = "${rawloader.upload.ingest-heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        if (running.isEmpty()) return;
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(running.keySet()).and("ingesting").is(true)),
+                new Update().set("ingestHeartbeatAt", Instant.now()), UploadSession.class);
+    }
+
+    // validation follows the chunks on an io thread; the permit is returned when it ends or stops waiting
+    private void startIngest(UploadSession session, AdmissionController.Permit permit) {
+        RawLoaderMetadata metadata = RawLoaderMetadata.newUpload(session.getFileName(), session.getPartnerId(),
+                session.getConfigId(), session.getFileFormat());
+        ChunkedContent content = new ChunkedContent(session);
+        Ingest ingest = new Ingest(content, new CompletableFuture<>());
+        running.put(session.getId(), ingest);
+        CompletableFuture.supplyAsync(() -> rawLoaderService.ingest(metadata, content, session.isTransform()), ioExecutor)
+                .whenComplete((response, e) -> {
+                    permit.close();
+                    running.remove(session.getId(), ingest);
+                    if (content.paused()) {
+                        paused(session);
+                        ingest.result().complete(pending(session));
+                        return;
+                    }
+                    finished(session, metadata, response, e);
+                    if (e != null) ingest.result().completeExceptionally(e);
+                    else ingest.result().complete(response);
+                });
+    }
+
+    // an ingest that stopped waiting: complete starts the next one, or it starts here if complete came meanwhile
+    private void paused(UploadSession session) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId()).and("ingesting").is(true)),
+                    new Update().set("ingesting", false), UploadSession.class);
+            log.info("Upload session {} validation paused until the upload is complete", session.getId());
+            UploadSession current = load(session.getId());
+            if (COMPLETED.equals(current.getStatus())) resume(current);
+        } catch (RuntimeException e) {
+            log.warn("Could not resume upload session {}, complete starts it again: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    // starts the ingest of a completed session whose ingest paused or whose node stopped; only one caller claims it
+    private UploadSession resume(UploadSession session) {
+        Instant now = Instant.now();
+        Query unclaimed = Query.query(Criteria.where("_id").is(session.getId()).and("status").is(COMPLETED).orOperator(
+                Criteria.where("ingesting").is(false),
+                Criteria.where("ingestHeartbeatAt").lt(now.minus(settings.getIngestStaleAfter())),
+                Criteria.where("ingestHeartbeatAt").exists(false)));
+        Update claim = new Update().set("ingesting", true).set("ingestHeartbeatAt", now);
+        if (mongoTemplate.updateFirst(unclaimed, claim, UploadSession.class).getMatchedCount() == 0) {
+            return load(session.getId());
+        }
+        Query claimed = Query.query(Criteria.where("_id").is(session.getId()).and("ingesting").is(true));
+        AdmissionController.Permit permit;
+        try {
+            SheetFormat format = SheetFormat.of(session.getFileFormat(), session.getFileName());
+            permit = admission.admit(session.getPartnerId(), admission.estimate(format, session.getLength()));
+        } catch (RuntimeException e) {
+            mongoTemplate.updateFirst(claimed, new Update().set("ingesting", false), UploadSession.class);
+            throw e;
+        }
+        try {
+            startIngest(session, permit);
+        } catch (RuntimeException e) {
+            permit.close();
+            mongoTemplate.updateFirst(claimed, new Update().set("ingesting", false), UploadSession.class);
+            throw e;
+        }
+        log.info("Upload session {} validation resumed", session.getId());
+        return session;
+    }
+
+    // seals the chunks 0..n-1, checks they hold what the session recorded, then writes the GridFS file document
+    private UploadSession seal(UploadSession session) {
+        UpdateResult sealing = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId()).and("status").is(OPEN)),
+                new Update().set("status", SEALING), UploadSession.class);
+        if (sealing.getMatchedCount() == 0) return load(session.getId());
+
+        ObjectId filesId = new ObjectId(session.getGridFsId());
+        MongoCollection<Document> chunkDocs = mongoTemplate.getCollection(GridFsChunkStream.CHUNKS);
+        chunkDocs.updateMany(Filters.eq("files_id", filesId), Updates.set("sealed", true));
+        try {
+            // a PUT that passed the status check before SEALING is in the session now; its chunk is checked below
+            UploadSession current = load(session.getId());
+            long length = verifyChunks(current, filesId);
+            int count = current.getChunks().size();
+
+            Document file = new Document("_id", filesId)
+                    .append("length", length)
+                    .append("chunkSize", current.getChunkSize())
+                    .append("uploadDate", new Date())
+                    .append("filename", current.getFileName());
+            if (current.getContentType() != null) file.append("metadata", new Document("_contentType", current.getContentType()));
+            mongoTemplate.getCollection(FILES).replaceOne(Filters.eq("_id", filesId), file, new ReplaceOptions().upsert(true));
+
+            UpdateResult completed = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId()).and("status").is(SEALING)),
+                    new Update().set("status", COMPLETED).set("chunkCount", count).set("length", length), UploadSession.class);
+            if (completed.getMatchedCount() == 0) {
+                deleteFile(session.getGridFsId()); // aborted or expired while sealing
+                return load(session.getId());
+            }
+            log.info("Upload session {} complete: {} chunks, {} bytes", session.getId(), count, length);
+            return load(session.getId());
+        } catch (RuntimeException e) {
+            chunkDocs.updateMany(Filters.eq("files_id", filesId), Updates.unset("sealed"));
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId()).and("status").is(SEALING)),
+                    new Update().set("status", OPEN), UploadSession.class);
+            throw e;
+        }
+    }
+
+    // chunks 0..n-1 recorded on the session and stored with the same checksum; returns the file length
+    private long verifyChunks(UploadSession session, ObjectId filesId) {
+        Map<String, UploadChunk> chunks = session.getChunks() == null ? Map.of() : session.getChunks();
+        int count = chunks.size();
+        if (count == 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No chunks uploaded");
+        Map<Integer, String> stored = new HashMap<>();
+        for (Document chunk : mongoTemplate.getCollection(GridFsChunkStream.CHUNKS)
+                .find(Filters.and(Filters.eq("files_id", filesId), Filters.eq("sealed", true)))
+                .projection(Projections.include("n", "sha256"))) {
+            stored.put(chunk.getInteger("n"), chunk.getString("sha256"));
+        }
+        long length = 0;
+        for (int n = 0; n < count; n++) {
+            UploadChunk chunk = chunks.get(String.valueOf(n));
+            if (chunk == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk " + n + " is missing");
+            if (n < count - 1 && chunk.getSize() != session.getChunkSize()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Chunk " + n + " has " + chunk.getSize() + " bytes, only the last may be shorter than " + session.getChunkSize());
+            }
+            if (!chunk.getSha256().equals(stored.get(n))) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Chunk " + n + " is still being written, complete again");
+            }
+            length += chunk.getSize();
+        }
+        return length;
+    }
+
+    private UploadResponseDTO awaitResult(UploadSession session) {
+        long waitMillis = settings.getCompleteWait().toMillis();
+        Ingest local = running.get(session.getId());
+        if (local != null) {
+            try {
+                return local.result().get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return pending(session);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return pending(session);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Upload failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        // the ingest runs on the node that opened the session: follow it through Mongo
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            UploadSession current = load(session.getId());
+            if (VALIDATED.equals(current.getStatus()) || FAILED.equals(current.getStatus())) return resultOf(current);
+            if (!ACTIVE.contains(current.getStatus())) throw notOpen(current);
+            if (System.currentTimeMillis() >= deadline) return pending(current);
+            try {
+                Thread.sleep(settings.getChunkPollInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return pending(current);
+            }
+        }
+    }
+
+    private UploadResponseDTO resultOf(UploadSession session) {
+        if (session.getMetadataId() == null) {
+            return new UploadResponseDTO(null, false, List.of(new ValidationError(null, "internal", session.getMessage())),
+                    "Internal error", session.getFileName(), FAILED);
+        }
+        RawLoaderMetadata metadata = metadataRepository.findById(session.getMetadataId())
+                .orElseThrow(() -> new ResourceNotFoundException("Metadata not found: " + session.getMetadataId()));
+        return UploadResponseDTO.of(metadata, session.getMessage(), false);
+    }
+
+    private static UploadResponseDTO pending(UploadSession session) {
+        return new UploadResponseDTO(null, false, List.of(), "Upload complete, validation in progress; poll the session or complete again",
+                session.getFileName(), "VALIDATING");
+    }
+
+    // records the ingest outcome on the session; an upload that kept no file has its chunks removed
+    private void finished(UploadSession session, RawLoaderMetadata metadata, UploadResponseDTO response, Throwable failure) {
+        boolean valid = failure == null && response.isValid();
+        String message = failure != null ? failure.getMessage() : response.getMessage();
+        if (failure == null && !valid && !response.getErrors().isEmpty() && response.getMetadataId() == null) {
+            message = response.getErrors().get(0).getMessage();
+        }
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId()).and("status").in(ACTIVE)),
+                    new Update().set("status", valid ? VALIDATED : FAILED)
+                            .set("metadataId", failure == null ? response.getMetadataId() : null)
+                            .set("message", message),
+                    UploadSession.class);
+            if (metadata.getGridFsId() == null) deleteFile(session.getGridFsId());
+        } catch (RuntimeException e) {
+            log.warn("Could not record the outcome of upload session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private void stopLocal(String sessionId) {
+        Ingest ingest = running.get(sessionId);
+        if (ingest != null) ingest.content().abort();
+    }
+
+    private void deleteFile(String gridFsId) {
+        ObjectId filesId = new ObjectId(gridFsId);
+        try {
+            mongoTemplate.getCollection(GridFsChunkStream.CHUNKS).deleteMany(Filters.eq("files_id", filesId));
+            mongoTemplate.getCollection(FILES).deleteOne(Filters.eq("_id", filesId));
+        } catch (RuntimeException e) {
+            log.warn("Could not remove chunks of {}: {}", gridFsId, e.getMessage());
+        }
+    }
+
+    // claimed by a node that stopped renewing it
+    private boolean isStale(UploadSession session) {
+        return session.getIngestHeartbeatAt() == null
+                || session.getIngestHeartbeatAt().isBefore(Instant.now().minus(settings.getIngestStaleAfter()));
+    }
+
+    private UploadSession load(String sessionId) {
+        UploadSession session = mongoTemplate.findById(sessionId, UploadSession.class);
+        if (session == null) throw new ResourceNotFoundException("Upload session not found: " + sessionId);
+        return session;
+    }
+
+    private static ResponseStatusException notOpen(UploadSession session) {
+        String reason = "Upload is " + session.getStatus().toLowerCase()
+                + (session.getMessage() != null ? ": " + session.getMessage() : "");
+        return new ResponseStatusException(HttpStatus.CONFLICT, reason);
+    }
+
+    private record Ingest(ChunkedContent content, CompletableFuture<UploadResponseDTO> result) {
+    }
+
+    /**
+     * The bytes of a resumable upload: already going into GridFS through the chunk PUTs, stored once sealed.
+     */
+    private final class ChunkedContent implements UploadContent {
+
+        private final UploadSession session;
+        private final GridFsChunkStream stream;
+        private final CompletableFuture<String> stored = new CompletableFuture<>();
+        private volatile boolean aborted;
+        private volatile boolean idle;
+
+        ChunkedContent(UploadSession session) {
+            this.session = session;
+            this.stream = new GridFsChunkStream(mongoTemplate, session.getId(), new ObjectId(session.getGridFsId()),
+                    settings.getChunkPollInterval(), settings.getCompleteWait());
+        }
+
+        @Override
+        public void start() {
+            ioExecutor.execute(this::awaitSealed);
+        }
+
+        @Override
+        public InputStream validationStream() {
+            return stream;
+        }
+
+        @Override
+        public CompletableFuture<String> stored() {
+            return stored;
+        }
+
+        // the chunks belong to the session: they are removed when it fails, is aborted or expires
+        @Override
+        public void abort() {
+            aborted = true;
+            stream.close();
+        }
+
+        boolean paused() {
+            return idle || stream.paused();
+        }
+
+        @Override
+        public long size() {
+            return stream.length();
+        }
+
+        @Override
+        public String contentHash() {
+            return stream.contentHash();
+        }
+
+        // validation may stop before the end of the file, so the seal is watched separately
+        private void awaitSealed() {
+            try {
+                while (!aborted) {
+                    UploadSession current = load(session.getId());
+                    if (OPEN.equals(current.getStatus()) && GridFsChunkStream.idle(current, settings.getCompleteWait())) {
+                        idle = true;
+                        throw new IllegalStateException("No chunk for " + settings.getCompleteWait().toSeconds() + "s");
+                    }
+                    if (!OPEN.equals(current.getStatus()) && !SEALING.equals(current.getStatus())) {
+                        if (current.getChunkCount() == null) throw new IllegalStateException(notOpen(current).getReason());
+                        stored.complete(current.getGridFsId());
+                        return;
+                    }
+                    Thread.sleep(settings.getChunkPollInterval().toMillis());
+                }
+                stored.completeExceptionally(new CancellationException("Upload aborted"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stored.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                stored.completeExceptionally(e);
+            }
+        }
+    }
+}
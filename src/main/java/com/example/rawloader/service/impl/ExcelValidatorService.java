@@ -1,153 +1,207 @@
 package com.example.rawloader.service.impl;
 
-import com.example.rawloader.model.LoaderColumnDTO;
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
 import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.model.RowSample;
 import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.model.ValidationResult;
 import com.example.rawloader.service.api.ValidatorService;
-import com.example.rawloader.util.ExcelUtils;
+import com.example.rawloader.util.RowHandler;
+import com.example.rawloader.util.SheetFormat;
+import com.example.rawloader.util.SheetRow;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.usermodel.DateUtil;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ExcelValidatorService implements ValidatorService {
 
+    private final RowProcessingEngine engine;
+    private final RawLoaderProperties properties;
+    private final IngestMetrics metrics;
+
     @Override
-    public List<ValidationError> validate(InputStream excelInputStream, LoaderConfigDTO config) {
-        List<ValidationError> errors = new ArrayList<>();
-        DataFormatter formatter = new DataFormatter();
-
-        try (Workbook wb = WorkbookFactory.create(excelInputStream)) {
-            Sheet sheet = wb.getSheetAt(0);
-            if (sheet == null) {
-                errors.add(new ValidationError(null, "internal", "No sheet found in workbook"));
-                return errors;
-            }
+    public ValidationResult validate(InputStream inputStream, SheetFormat format, LoaderConfigDTO config,
+                                     Consumer<List<Map<String, Object>>> converted,
+                                     Consumer<List<ValidationError>> spill) {
+        return validate(inputStream, format, config, bound -> bound::convert, converted, spill);
+    }
 
-            // 1️⃣ Header validation
-            Row headerRow = sheet.getRow(0);
-            if (headerRow == null) {
+    /**
+     * @param converter how a data row becomes the stored map once the header is bound, e.g.
+     *                  {@link TransformServiceImpl#rowConverter}; runs on worker threads, a null result drops the row
+     */
+    ValidationResult validate(InputStream inputStream, SheetFormat format, LoaderConfigDTO config,
+                              Function<LoaderPlan.Bound, Function<SheetRow, Map<String, Object>>> converter,
+                              Consumer<List<Map<String, Object>>> converted,
+                              Consumer<List<ValidationError>> spill) {
+        long start = System.nanoTime();
+        // ✅ Capped: a file full of bad cells is counted and spilled, not held in memory
+        ValidationErrorCollector errors = new ValidationErrorCollector(properties.getValidation(), spill);
+
+        RowValidator validator = new RowValidator(config, errors, converter, converted, start);
+        try {
+            format.reader().read(inputStream, validator);
+            validator.finish();
+            if (!validator.headerSeen && errors.isEmpty()) {
                 errors.add(new ValidationError(null, "internal", "Missing header row"));
-                return errors;
             }
+        } catch (Exception e) {
+            validator.cancel();
+            log.error("Validation crashed unexpectedly", e);
+            errors.add(new ValidationError(null, "internal", e.getMessage() != null ? e.getMessage() : "Validation failed"));
+        }
+
+        errors.flush();
+        metrics.recordSince(IngestMetrics.Stage.VALIDATION, start);
+        return new ValidationResult(errors.kept(), validator.rowCount, validator.sample(),
+                errors.count(), errors.groups(), errors.isAborted());
+    }
 
-            List<String> headers = ExcelUtils.readHeader(headerRow);
-            Map<String, Integer> headerIndex = new HashMap<>();
-            for (int i = 0; i < headers.size(); i++) {
-                headerIndex.put(headers.get(i).trim().toLowerCase(Locale.ROOT), i);
+    /**
+     * Streaming row callback: the first row is the header; data rows are validated in
+     * parallel batches by the {@link RowProcessingEngine} and their errors merged in row order.
+     * With a {@code converted} consumer the same batches are also transformed, which saves a
+     * second parse when the upload is transformed right away. A {@link RowSampler} keeps a few
+     * rows for previews.
+     */
+    private final class RowValidator implements RowHandler {
+
+        private final LoaderPlan plan;
+        private final ValidationErrorCollector errors;
+        private final Function<LoaderPlan.Bound, Function<SheetRow, Map<String, Object>>> converterOf;
+        private final Consumer<List<Map<String, Object>>> converted;
+        private final RowSampler sampler;
+        private final long startNanos;
+        private LoaderPlan.Bound bound;
+        private Function<SheetRow, Map<String, Object>> converter;
+        private RowProcessingEngine.Pipeline<Checked> rows;
+        private boolean headerSeen;
+        private int rowCount;
+        // cleared on the first error: converted rows are useless from then on
+        private volatile boolean converting;
+
+        RowValidator(LoaderConfigDTO config, ValidationErrorCollector errors,
+                     Function<LoaderPlan.Bound, Function<SheetRow, Map<String, Object>>> converterOf,
+                     Consumer<List<Map<String, Object>>> converted, long startNanos) {
+            this.plan = LoaderPlan.compile(config);
+            this.startNanos = startNanos;
+            this.errors = errors;
+            this.converterOf = converterOf;
+            this.converted = converted;
+            this.converting = converted != null;
+            this.sampler = new RowSampler(properties.getPreview().getHeadRows(), properties.getPreview().getSpreadRows());
+        }
+
+        @Override
+        public boolean onRow(SheetRow row) {
+            if (!headerSeen) {
+                return onHeader(row);
             }
+            rowCount++;
+            sampler.offer(row);
+            return rows.onRow(row);
+        }
 
-            for (LoaderColumnDTO col : config.getColumnMappings()) {
-                if (!headerIndex.containsKey(col.getHeader().trim().toLowerCase(Locale.ROOT))) {
-                    errors.add(new ValidationError(null, col.getHeader(), "Missing header in Excel"));
-                }
+        RowSample sample() {
+            return bound == null ? null : sampler.build(bound);
+        }
+
+        void finish() {
+            if (rows != null) rows.finish();
+        }
+
+        void cancel() {
+            if (rows != null) rows.cancel();
+        }
+
+        // 1️⃣ Header validation
+        private boolean onHeader(SheetRow row) {
+            headerSeen = true;
+            metrics.recordSince(IngestMetrics.Stage.WORKBOOK_OPEN, startNanos);
+            if (row.getRowNum() != 0) {
+                errors.add(new ValidationError(null, "internal", "Missing header row"));
+                return false;
             }
-            if (!errors.isEmpty()) return errors;
-
-            // 2️⃣ Row validation
-            int lastRow = sheet.getLastRowNum();
-            for (int r = 1; r <= lastRow; r++) {
-                Row row = sheet.getRow(r);
-                if (row == null || ExcelUtils.isRowEmpty(row)) continue;
-                int displayRow = r + 1; // Excel rows are 1-based for users
-
-                for (LoaderColumnDTO col : config.getColumnMappings()) {
-                    Integer idx = headerIndex.get(col.getHeader().trim().toLowerCase(Locale.ROOT));
-                    if (idx == null) continue;
-
-                    Cell cell = row.getCell(idx);
-                    String displayValue = (cell == null) ? "" : formatter.formatCellValue(cell).trim();
-
-                    boolean required = col.isRequired();
-                    String type = (col.getType() == null) ? "string" : col.getType().toLowerCase(Locale.ROOT);
-                    String format = (col.getFormat() == null || col.getFormat().isBlank()) ? "dd/MM/yyyy" : col.getFormat();
-
-                    // 🟠 Required check
-                    if (required && (displayValue == null || displayValue.isEmpty())) {
-                        errors.add(new ValidationError(displayRow, col.getHeader(), "Required value is missing"));
-                        continue;
-                    }
 
-                    // 🟢 Skip empty optional
-                    if (displayValue == null || displayValue.isEmpty()) continue;
-
-                    // 🔵 Type validation
-                    switch (type) {
-                        case "number" -> {
-                            if (!isNumeric(cell, displayValue)) {
-                                errors.add(new ValidationError(displayRow, col.getHeader(), "Invalid data type (expected number)"));
-                            }
-                        }
-                        case "date" -> {
-                            if (!isDate(cell, displayValue, format)) {
-                                errors.add(new ValidationError(displayRow, col.getHeader(),
-                                        "Invalid date format (expected " + format + ")"));
-                            }
-                        }
-                        default -> {
-                            // string → always valid
-                        }
-                    }
-                }
+            bound = plan.bind(row);
+            for (LoaderPlan.Column col : bound.missing()) {
+                errors.add(new ValidationError(null, col.header, "Missing header in Excel"));
             }
+            if (!errors.isEmpty()) return false;
 
-        } catch (Exception e) {
-            log.error("Validation crashed unexpectedly", e);
-            errors.add(new ValidationError(null, "internal", e.getMessage() != null ? e.getMessage() : "Validation failed"));
+            if (converting) converter = converterOf.apply(bound);
+            rows = engine.pipeline(this::validateBatch, this::merge);
+            return true;
         }
 
-        return errors;
-    }
+        // runs on a worker thread: only reads the bound plan
+        private Checked validateBatch(List<SheetRow> batch) {
+            List<ValidationError> out = new ArrayList<>();
+            for (SheetRow row : batch) {
+                if (!row.isEmpty()) validateRow(row, out);
+            }
+            if (!converting || !out.isEmpty()) return new Checked(out, null);
 
-    private boolean isNumeric(Cell cell, String display) {
-        try {
-            if (cell != null && cell.getCellType() == CellType.NUMERIC) return true;
-            if (cell != null && cell.getCellType() == CellType.FORMULA &&
-                    cell.getCachedFormulaResultType() == CellType.NUMERIC) return true;
-            Double.parseDouble(display.replace(",", ""));
-            return true;
-        } catch (Exception e) {
-            return false;
+            long start = System.nanoTime();
+            List<Map<String, Object>> mapped = new ArrayList<>(batch.size());
+            for (SheetRow row : batch) {
+                Map<String, Object> mappedRow = converter.apply(row);
+                if (mappedRow != null) mapped.add(mappedRow);
+            }
+            metrics.recordSince(IngestMetrics.Stage.CONVERSION, start);
+            return new Checked(out, mapped);
         }
-    }
 
-    private boolean isDate(Cell cell, String display, String pattern) {
-        try {
-            // Excel-native date
-            if (cell != null) {
-                if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) return true;
-                if (cell.getCellType() == CellType.FORMULA &&
-                        cell.getCachedFormulaResultType() == CellType.NUMERIC &&
-                        DateUtil.isCellDateFormatted(cell)) return true;
+        // reader thread, row order
+        private boolean merge(Checked checked) {
+            boolean keepReading = errors.addAll(checked.errors());
+            if (!errors.isEmpty()) {
+                converting = false;
+            } else if (converting && checked.rows() != null) {
+                converted.accept(checked.rows());
             }
-            // Try parse as text
-            if (tryParse(display, pattern)) return true;
+            return keepReading;
+        }
 
-            // fallback formats
-            String[] fallbacks = {"dd/MM/yyyy", "d/M/yyyy", "yyyy-MM-dd", "dd-MM-yyyy", "MM/dd/yyyy"};
-            for (String f : fallbacks) {
-                if (tryParse(display, f)) return true;
+        // 2️⃣ Row validation
+        private void validateRow(SheetRow row, List<ValidationError> out) {
+            int displayRow = row.getRowNum() + 1; // Excel rows are 1-based for users
+            LoaderPlan.Column[] columns = bound.columns();
+
+            for (int i = 0; i < columns.length; i++) {
+                int idx = bound.index(i);
+                if (idx < 0) continue;
+                LoaderPlan.Column col = columns[i];
+
+                String displayValue = row.value(idx).trim();
+
+                // 🟢 Empty: required check, otherwise skip
+                if (displayValue.isEmpty()) {
+                    if (col.required) {
+                        out.add(new ValidationError(displayRow, col.header, "Required value is missing"));
+                    }
+                    continue;
+                }
+
+                // 🔵 Type validation
+                if (!col.type.isValid(row, idx, displayValue, col)) {
+                    out.add(new ValidationError(displayRow, col.header, col.typeError));
+                }
             }
-            return false;
-        } catch (Exception e) {
-            return false;
         }
     }
 
-    private boolean tryParse(String text, String pattern) {
-        try {
-            DateTimeFormatter f = DateTimeFormatter.ofPattern(pattern);
-            LocalDate.parse(text.trim(), f);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    private record Checked(List<ValidationError> errors, List<Map<String, Object>> rows) {
     }
 }
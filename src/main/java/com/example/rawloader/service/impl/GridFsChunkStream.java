@@ -0,0 +1,193 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.model.UploadSession;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads the GridFS chunks of a resumable upload in order while they are still arriving: a chunk
+ * that is not there yet is waited for until the session is completed, aborted or expired, or no
+ * chunk came for {@code idleAfter}. Hashes what it reads, so the SHA-256 of the file is known once
+ * the end is reached.
+ */
+final class GridFsChunkStream extends InputStream {
+
+    static final String CHUNKS = "fs.chunks";
+    private static final int FETCH = 8;
+
+    private final MongoTemplate mongoTemplate;
+    private final String sessionId;
+    private final ObjectId filesId;
+    private final long pollMillis;
+    private final Duration idleAfter;
+    private final MessageDigest digest;
+    private final Deque<byte[]> fetched = new ArrayDeque<>();
+    private final List<String> readHashes = new ArrayList<>(); // SHA-256 of each chunk as it was read, by number
+    private byte[] current;
+    private int pos;
+    private int next;          // number of the next chunk to fetch
+    private long length;
+    private boolean eof;
+    private volatile boolean closed;
+    private volatile boolean paused;
+
+    GridFsChunkStream(MongoTemplate mongoTemplate, String sessionId, ObjectId filesId, Duration pollInterval, Duration idleAfter) {
+        this.mongoTemplate = mongoTemplate;
+        this.sessionId = sessionId;
+        this.filesId = filesId;
+        this.pollMillis = Math.max(10, pollInterval.toMillis());
+        this.idleAfter = idleAfter;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return current[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+        int n = Math.min(len, current.length - pos);
+        System.arraycopy(current, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /**
+     * Stops a reader waiting for chunks; safe from any thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    long length() {
+        return length;
+    }
+
+    /**
+     * Whether reading stopped without the upload failing: no chunk came for {@code idleAfter}, or a chunk
+     * was replaced after it was read. The file has to be read again once the upload is complete.
+     */
+    boolean paused() {
+        return paused;
+    }
+
+    /**
+     * Whether an open session got no chunk for {@code idleAfter}.
+     */
+    static boolean idle(UploadSession session, Duration idleAfter) {
+        return session.getLastChunkAt() != null && session.getLastChunkAt().isBefore(Instant.now().minus(idleAfter));
+    }
+
+    /**
+     * Hex SHA-256 of the file, or null when it was not read to the end.
+     */
+    String contentHash() {
+        return eof ? HexFormat.of().formatHex(digest.digest()) : null;
+    }
+
+    private boolean fill() throws IOException {
+        if (closed) throw new IOException("Stream closed");
+        if (current != null && pos < current.length) return true;
+        if (eof) return false;
+        while (fetched.isEmpty()) {
+            if (closed) throw new IOException("Stream closed");
+            if (fetch() > 0) continue;
+            if (ended()) {
+                eof = true;
+                return false;
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for upload chunks");
+            }
+        }
+        current = fetched.poll();
+        pos = 0;
+        digest.update(current);
+        length += current.length;
+        return true;
+    }
+
+    // the next chunks that are already there, in order, stopping at the first gap
+    private int fetch() {
+        int found = 0;
+        for (Document chunk : mongoTemplate.getCollection(CHUNKS)
+                .find(Filters.and(Filters.eq("files_id", filesId), Filters.gte("n", next)))
+                .sort(Sorts.ascending("n"))
+                .limit(FETCH)) {
+            if (chunk.getInteger("n") != next) break;
+            byte[] data = chunk.get("data", Binary.class).getData();
+            if (data.length > 0) fetched.add(data);
+            readHashes.add(chunk.getString("sha256"));
+            next++;
+            found++;
+        }
+        return found;
+    }
+
+    private boolean ended() throws IOException {
+        UploadSession session = mongoTemplate.findById(sessionId, UploadSession.class);
+        if (session == null) throw new IOException("Upload session removed");
+        return switch (session.getStatus()) {
+            case ChunkedUploadServiceImpl.OPEN -> {
+                if (idle(session, idleAfter)) {
+                    paused = true;
+                    throw new IOException("No chunk for " + idleAfter.toSeconds() + "s");
+                }
+                yield false;
+            }
+            case ChunkedUploadServiceImpl.SEALING -> false;
+            case ChunkedUploadServiceImpl.ABORTED, ChunkedUploadServiceImpl.EXPIRED ->
+                    throw new IOException("Upload " + session.getStatus().toLowerCase());
+            // sealed: the chunk count is final, so a gap here means the end of the file
+            default -> {
+                if (session.getChunkCount() == null || next < session.getChunkCount()) yield false;
+                verifySealed();
+                yield true;
+            }
+        };
+    }
+
+    // a chunk resent with other bytes after it was read means the validation did not see the stored file
+    private void verifySealed() throws IOException {
+        for (Document chunk : mongoTemplate.getCollection(CHUNKS)
+                .find(Filters.eq("files_id", filesId))
+                .projection(Projections.include("n", "sha256"))) {
+            int n = chunk.getInteger("n");
+            if (n < readHashes.size() && !Objects.equals(readHashes.get(n), chunk.getString("sha256"))) {
+                paused = true;
+                throw new IOException("Chunk " + n + " was replaced after it was read");
+            }
+        }
+    }
+}
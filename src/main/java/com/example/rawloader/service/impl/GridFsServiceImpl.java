@@ -1,8 +1,11 @@
 package com.example.rawloader.service.impl;
 
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
 import com.example.rawloader.repository.RawLoaderMetadataRepository;
 import com.example.rawloader.service.api.FileStorageService;
-import lombok.RequiredArgsConstructor;
+import com.example.rawloader.util.MappedFileCache;
+import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
@@ -12,27 +15,87 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Optional;
+import java.nio.file.Path;
+import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class GridFsServiceImpl implements FileStorageService {
 
     private final GridFsTemplate gridFsTemplate;
     private final RawLoaderMetadataRepository metadataRepository;
+    private final IngestMetrics metrics;
+    private final MappedFileCache cache; // null when disabled
+    private final Duration recheckAfter;
+
+    public GridFsServiceImpl(GridFsTemplate gridFsTemplate,
+                             RawLoaderMetadataRepository metadataRepository,
+                             IngestMetrics metrics,
+                             RawLoaderProperties properties) {
+        this.gridFsTemplate = gridFsTemplate;
+        this.metadataRepository = metadataRepository;
+        this.metrics = metrics;
+        RawLoaderProperties.FileCache settings = properties.getFileCache();
+        this.cache = settings.isEnabled() ? openCache(settings) : null;
+        this.recheckAfter = settings.getRecheckAfter();
+    }
+
+    // a directory another process holds, or that holds other files, leaves this node without a cache
+    private static MappedFileCache openCache(RawLoaderProperties.FileCache settings) {
+        try {
+            return new MappedFileCache(Path.of(settings.getDirectory()), settings.getMaxBytes(), settings.getMaxFileBytes());
+        } catch (IllegalStateException e) {
+            log.warn("File cache disabled: {}", e.getMessage());
+            return null;
+        }
+    }
 
     @Override
     public String store(String filename, String contentType, InputStream stream) {
-        ObjectId id = gridFsTemplate.store(stream, filename, contentType);
-        return id.toHexString();
+        if (cache == null) {
+            ObjectId id = metrics.time(IngestMetrics.Stage.GRIDFS_STORE, () -> gridFsTemplate.store(stream, filename, contentType));
+            return id.toHexString();
+        }
+        // ✅ Write-through: the bytes on their way to GridFS are copied to the local cache
+        try (MappedFileCache.Fill fill = cache.fill(stream)) {
+            ObjectId id = metrics.time(IngestMetrics.Stage.GRIDFS_STORE, () -> gridFsTemplate.store(fill, filename, contentType));
+            fill.commit(id.toHexString());
+            return id.toHexString();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error storing GridFS file", e);
+        }
     }
 
     @Override
     public InputStream downloadById(String gridFsId) {
+        return open(gridFsId).content();
+    }
+
+    @Override
+    public StoredFile open(String gridFsId) {
+        if (cache != null) {
+            MappedFileCache.MappedInputStream cached = cache.open(gridFsId);
+            if (cached != null) {
+                // ✅ Deletes through this node invalidate at once; one through another node is seen within recheck-after
+                if (cache.isConfirmedWithin(gridFsId, recheckAfter)) return new StoredFile(cached.length(), cached);
+                if (exists(gridFsId)) {
+                    cache.confirm(gridFsId);
+                    return new StoredFile(cached.length(), cached);
+                }
+                cache.invalidate(gridFsId);
+            }
+        }
+        // time to first byte: the bytes themselves are pulled by the reader
+        long start = System.nanoTime();
         GridFsResource resource = getResourceByGridFsId(gridFsId);
         try {
-            return resource.getInputStream();
+            // the driver's stream skips by fetching the chunk holding the new position
+            InputStream in = resource.getInputStream();
+            metrics.recordSince(IngestMetrics.Stage.GRIDFS_DOWNLOAD, start);
+            // a miss read to the end is kept for the next reader
+            return new StoredFile(resource.getGridFSFile().getLength(), cache != null ? cache.readThrough(gridFsId, in) : in);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading GridFS resource", e);
         }
@@ -45,6 +108,22 @@ public class GridFsServiceImpl implements FileStorageService {
         return downloadById(metadata.getGridFsId());
     }
 
+    @Override
+    public boolean exists(String gridFsId) {
+        if (!ObjectId.isValid(gridFsId)) return false;
+        return gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(new ObjectId(gridFsId)))) != null;
+    }
+
+    @Override
+    public void delete(String gridFsId) {
+        if (cache != null) cache.invalidate(gridFsId);
+        gridFsTemplate.delete(Query.query(Criteria.where("_id").is(new ObjectId(gridFsId))));
+    }
+
+    public MappedFileCache cache() {
+        return cache;
+    }
+
     private GridFsResource getResourceByGridFsId(String gridFsId) {
         try {
             Query q = Query.query(Criteria.where("_id").is(new ObjectId(gridFsId)));
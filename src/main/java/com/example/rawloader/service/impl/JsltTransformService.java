@@ -1,37 +1,170 @@
 package com.example.rawloader.service.impl;
 
-import com.example.rawloader.service.api.TransformService;
+import com.example.rawloader.client.ConfigClient;
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.repository.RawLoaderMetadataRepository;
+import com.example.rawloader.service.api.FileStorageService;
+import com.example.rawloader.util.SheetRow;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.schibsted.spt.data.jslt.Expression;
+import com.schibsted.spt.data.jslt.JsltException;
+import com.schibsted.spt.data.jslt.Parser;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
- * Stub JSLT transformer implementation.
- * Currently just a placeholder until JSLT templates are ready.
- * It will not be active in the 'dev' profile — only when you run with profile 'jslt'.
+ * Transformer that applies the config's JSLT template on top of the column mapping.
+ * Only active with profile 'jslt'; configs without a template are transformed as usual.
+ * Templates are compiled once per (configId, version) and the compiled, thread-safe
+ * {@link Expression} is shared by all worker threads.
  */
 @Slf4j
 @Service
+@Primary
 @Profile("jslt")
-public class JsltTransformService implements TransformService {
+public class JsltTransformService extends TransformServiceImpl {
+
+    private static final int MAX_CACHED_TEMPLATES = 256;
+    // one stateless factory for every row and thread
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    // least recently used templates go first; looked up once per run or preview, not per row
+    private final Map<TemplateKey, Compiled> templates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TemplateKey, Compiled> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    }; // guarded by itself
+
+    public JsltTransformService(RawLoaderMetadataRepository metadataRepository,
+                                FileStorageService fileStorageService,
+                                ConfigClient configClient,
+                                RowProcessingEngine engine,
+                                MongoTemplate mongoTemplate,
+                                TransformedStore transformedStore,
+                                IngestMetrics metrics,
+                                RawLoaderProperties properties,
+                                AdmissionController admission) {
+        super(metadataRepository, fileStorageService, configClient, engine, mongoTemplate, transformedStore, metrics,
+                properties, admission);
+    }
 
     @Override
-    public int transform(String metadataId) {
-        log.info("🔧 [JsltTransformService] transform() called for metadataId={}", metadataId);
-        // TODO: Implement JSLT transformation here
-        // Returning 0 for now since transformation is not yet implemented
-        return 0;
+    Function<SheetRow, Map<String, Object>> rowConverter(LoaderConfigDTO config, LoaderPlan.Bound bound) {
+        Expression expression = expression(config);
+        if (expression == null) return bound::convert;
+        // sheet row → ObjectNode → template → map: no intermediate map per row
+        return row -> toRow(expression.apply(bound.convert(row, NODES)));
     }
 
+    // sample rows were only mapped at upload: the few of a preview go through the template as maps
     @Override
-    public List<Map<String, Object>> preview(String metadataId, int limit) {
-        log.info("🔧 [JsltTransformService] preview() called for metadataId={}, limit={}", metadataId, limit);
-        // TODO: Implement JSLT preview logic here
-        // Returning empty list for now as a placeholder
-        return Collections.emptyList();
+    List<Map<String, Object>> finishSample(RawLoaderMetadata metadata, List<Map<String, Object>> rows) {
+        Expression expression = expression(configOf(metadata));
+        if (expression == null) return rows;
+        List<Map<String, Object>> out = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> converted = toRow(expression.apply(toNode(row)));
+            if (converted != null) out.add(converted);
+        }
+        return out;
+    }
+
+    private Expression expression(LoaderConfigDTO config) {
+        String source = config.getJslt();
+        if (source == null || source.isBlank()) return null;
+
+        TemplateKey key = new TemplateKey(config.getConfigId(), config.getVersion());
+        Compiled cached;
+        synchronized (templates) {
+            cached = templates.get(key);
+        }
+        // the source check also catches edits of configs that do not bump their version
+        if (cached != null && cached.source.equals(source)) return cached.expression;
+
+        try {
+            Compiled compiled = new Compiled(source, Parser.compileString(source));
+            synchronized (templates) {
+                templates.put(key, compiled);
+            }
+            log.info("Compiled JSLT template for config {} version {}", config.getConfigId(), config.getVersion());
+            return compiled.expression;
+        } catch (JsltException e) {
+            throw new IllegalArgumentException("Invalid JSLT template in config " + config.getConfigId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // a template may drop a row by producing null; anything else must be an object
+    private static Map<String, Object> toRow(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) return null;
+        if (!node.isObject()) throw new IllegalStateException("JSLT template must produce an object, got " + node.getNodeType());
+        return toMap(node);
+    }
+
+    private static Map<String, Object> toMap(JsonNode object) {
+        Map<String, Object> out = new LinkedHashMap<>((int) (object.size() / 0.75f) + 1);
+        for (Iterator<Map.Entry<String, JsonNode>> it = object.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            out.put(field.getKey(), toValue(field.getValue()));
+        }
+        return out;
+    }
+
+    private static Object toValue(JsonNode node) {
+        return switch (node.getNodeType()) {
+            case STRING -> node.textValue();
+            case NUMBER -> node.isIntegralNumber() && node.canConvertToLong() ? (Object) node.longValue() : (Object) node.doubleValue();
+            case BOOLEAN -> node.booleanValue();
+            case OBJECT -> toMap(node);
+            case ARRAY -> {
+                List<Object> list = new ArrayList<>(node.size());
+                for (JsonNode item : node) list.add(toValue(item));
+                yield list;
+            }
+            default -> null;
+        };
+    }
+
+    private static JsonNode toNode(Object value) {
+        if (value == null) return NODES.nullNode();
+        if (value instanceof String s) return NODES.textNode(s);
+        if (value instanceof Double d) return NODES.numberNode(d);
+        if (value instanceof Long l) return NODES.numberNode(l);
+        if (value instanceof Integer i) return NODES.numberNode(i);
+        if (value instanceof Boolean b) return NODES.booleanNode(b);
+        if (value instanceof Map<?, ?> map) {
+            ObjectNode object = NODES.objectNode();
+            for (Map.Entry<?, ?> e : map.entrySet()) object.set(String.valueOf(e.getKey()), toNode(e.getValue()));
+            return object;
+        }
+        if (value instanceof Collection<?> items) {
+            ArrayNode array = NODES.arrayNode(items.size());
+            for (Object item : items) array.add(toNode(item));
+            return array;
+        }
+        return NODES.textNode(value.toString());
+    }
+
+    private record TemplateKey(String configId, Long version) {
+    }
+
+    private record Compiled(String source, Expression expression) {
     }
 }
@@ -0,0 +1,217 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.model.LoaderColumnDTO;
+import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.util.DateParser;
+import com.example.rawloader.util.DecimalParser;
+import com.example.rawloader.util.SheetRow;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column mappings of a {@link LoaderConfigDTO} compiled once: normalized headers, typed converters,
+ * date parsers and error messages are resolved up front. After {@link #bind} the validator and
+ * transformer hot loops only do an array lookup and a virtual call per cell.
+ */
+final class LoaderPlan {
+
+    static final String DEFAULT_DATE_FORMAT = "dd/MM/yyyy";
+    private static final List<String> FALLBACK_DATE_FORMATS = List.of("dd/MM/yyyy", "d/M/yyyy", "yyyy-MM-dd", "dd-MM-yyyy", "MM/dd/yyyy");
+
+    private final Column[] columns;
+
+    private LoaderPlan(Column[] columns) {
+        this.columns = columns;
+    }
+
+    static LoaderPlan compile(LoaderConfigDTO config) {
+        List<LoaderColumnDTO> mappings = config.getColumnMappings() == null ? List.of() : config.getColumnMappings();
+        Column[] columns = new Column[mappings.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(mappings.get(i));
+        }
+        return new LoaderPlan(columns);
+    }
+
+    /**
+     * Resolves column indexes against a header row. Header matching is trimmed and case-insensitive.
+     */
+    Bound bind(SheetRow headerRow) {
+        Map<String, Integer> headerIndex = new HashMap<>();
+        for (int i = 0; i < headerRow.size(); i++) {
+            headerIndex.put(normalize(headerRow.value(i)), i);
+        }
+        int[] indexes = new int[columns.length];
+        List<Column> missing = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            Integer idx = headerIndex.get(columns[i].normalizedHeader);
+            indexes[i] = idx == null ? -1 : idx;
+            if (idx == null) missing.add(columns[i]);
+        }
+        return new Bound(columns, indexes, missing);
+    }
+
+    private static String normalize(String header) {
+        return header == null ? "" : header.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A plan whose columns are resolved to cell indexes of one file.
+     */
+    static final class Bound {
+
+        private final Column[] columns;
+        private final int[] indexes;
+        private final List<Column> missing;
+        private final int mapCapacity;
+
+        private Bound(Column[] columns, int[] indexes, List<Column> missing) {
+            this.columns = columns;
+            this.indexes = indexes;
+            this.missing = missing;
+            this.mapCapacity = (int) (columns.length / 0.75f) + 1;
+        }
+
+        Column[] columns() {
+            return columns;
+        }
+
+        /** Cell index of column {@code i}, or -1 when its header is not in the file. */
+        int index(int i) {
+            return indexes[i];
+        }
+
+        List<Column> missing() {
+            return missing;
+        }
+
+        /**
+         * Same values as {@link #convert(SheetRow)}, built straight into a JSON object (no intermediate map).
+         */
+        ObjectNode convert(SheetRow row, JsonNodeFactory nodes) {
+            ObjectNode out = nodes.objectNode();
+            for (int i = 0; i < columns.length; i++) {
+                Column col = columns[i];
+                int idx = indexes[i];
+                Object value = idx < 0 ? null : col.type.convert(row, idx, col);
+                if (value == null) {
+                    out.putNull(col.key);
+                } else if (value instanceof Double d) {
+                    out.set(col.key, nodes.numberNode(d));
+                } else {
+                    out.set(col.key, nodes.textNode(value.toString()));
+                }
+            }
+            return out;
+        }
+
+        Map<String, Object> convert(SheetRow row) {
+            Map<String, Object> out = new LinkedHashMap<>(mapCapacity);
+            for (int i = 0; i < columns.length; i++) {
+                Column col = columns[i];
+                int idx = indexes[i];
+                out.put(col.key, idx < 0 ? null : col.type.convert(row, idx, col));
+            }
+            return out;
+        }
+    }
+
+    static final class Column {
+        final String header;
+        final String key;
+        final boolean required;
+        final ColumnType type;
+        final String dateFormat;
+        final DateParser dates;   // configured format first, then the fallbacks
+        final String typeError;
+        private final String normalizedHeader;
+
+        private Column(LoaderColumnDTO dto) {
+            this.header = dto.getHeader();
+            this.key = dto.getKey();
+            this.required = dto.isRequired();
+            this.type = ColumnType.of(dto.getType());
+            this.normalizedHeader = normalize(dto.getHeader());
+            this.dateFormat = (dto.getFormat() == null || dto.getFormat().isBlank()) ? DEFAULT_DATE_FORMAT : dto.getFormat();
+            this.dates = type == ColumnType.DATE ? new DateParser(dateFormat, FALLBACK_DATE_FORMATS) : null;
+            this.typeError = switch (type) {
+                case NUMBER -> "Invalid data type (expected number)";
+                case DATE -> "Invalid date format (expected " + dateFormat + ")";
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * Per-type validation and conversion; unknown types behave like string.
+     */
+    enum ColumnType {
+        STRING {
+            @Override
+            boolean isValid(SheetRow row, int idx, String display, Column col) {
+                return true;
+            }
+
+            @Override
+            Object convert(SheetRow row, int idx, Column col) {
+                return row.value(idx);
+            }
+        },
+        NUMBER {
+            @Override
+            boolean isValid(SheetRow row, int idx, String display, Column col) {
+                // numeric cells (including date formatted ones and cached formula results)
+                SheetRow.Kind kind = row.kind(idx);
+                if (kind == SheetRow.Kind.NUMERIC || kind == SheetRow.Kind.DATE) return true;
+                return DecimalParser.isDecimal(display);
+            }
+
+            @Override
+            Object convert(SheetRow row, int idx, Column col) {
+                SheetRow.Kind kind = row.kind(idx);
+                if (kind == SheetRow.Kind.NUMERIC || kind == SheetRow.Kind.DATE) return row.number(idx);
+                double d = DecimalParser.parse(row.value(idx));
+                return Double.isNaN(d) ? null : d;
+            }
+        },
+        DATE {
+            @Override
+            boolean isValid(SheetRow row, int idx, String display, Column col) {
+                // Excel-native date
+                if (row.kind(idx) == SheetRow.Kind.DATE) return true;
+                return col.dates.isValid(display);
+            }
+
+            @Override
+            Object convert(SheetRow row, int idx, Column col) {
+                if (row.kind(idx) == SheetRow.Kind.DATE) {
+                    return DateUtil.getLocalDateTime(row.number(idx)).toLocalDate().toString();
+                }
+                long day = col.dates.parseEpochDay(row.value(idx));
+                return day == DateParser.INVALID ? null : LocalDate.ofEpochDay(day).toString();
+            }
+        };
+
+        abstract boolean isValid(SheetRow row, int idx, String display, Column col);
+
+        abstract Object convert(SheetRow row, int idx, Column col);
+
+        static ColumnType of(String type) {
+            if (type == null) return STRING;
+            return switch (type.trim().toLowerCase(Locale.ROOT)) {
+                case "number" -> NUMBER;
+                case "date" -> DATE;
+                default -> STRING;
+            };
+        }
+    }
+}
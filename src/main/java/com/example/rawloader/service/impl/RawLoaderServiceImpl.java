@@ -2,94 +2,373 @@ package com.example.rawloader.service.impl;
 
 import com.example.rawloader.client.ConfigClient;
 import com.example.rawloader.client.PartnerClient;
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
 import com.example.rawloader.dto.PartnerDTO;
+import com.example.rawloader.dto.UploadPageDTO;
 import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.dto.UploadSummary;
+import com.example.rawloader.dto.ValidationErrorPageDTO;
 import com.example.rawloader.exception.FileValidationException;
+import com.example.rawloader.exception.ResourceNotFoundException;
 import com.example.rawloader.model.LoaderConfigDTO;
 import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.StorageLayout;
 import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.model.ValidationResult;
 import com.example.rawloader.repository.RawLoaderMetadataRepository;
 import com.example.rawloader.service.api.FileStorageService;
 import com.example.rawloader.service.api.RawLoaderService;
-import com.example.rawloader.service.api.ValidatorService;
+import com.example.rawloader.service.api.UploadContent;
+import com.example.rawloader.util.ContentHash;
+import com.example.rawloader.util.SheetFormat;
+import com.example.rawloader.util.StreamFanOut;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.time.Instant;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RawLoaderServiceImpl implements RawLoaderService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final PartnerClient partnerClient;
     private final ConfigClient configClient;
-    private final ValidatorService validatorService;
+    private final ExcelValidatorService validatorService;
     private final FileStorageService fileStorageService;
     private final RawLoaderMetadataRepository metadataRepository;
+    private final TransformedStore transformedStore;
+    private final ValidationErrorStore errorStore;
+    private final TransformServiceImpl transformService;
+    private final RawLoaderProperties properties;
+    private final IngestMetrics metrics;
+    private final AdmissionController admission;
+    @Qualifier("ioExecutor")
+    private final ExecutorService ioExecutor;
+
+    @Override
+    public UploadResponseDTO handleUpload(MultipartFile file, Long partnerId, String configId, boolean transform, boolean force) {
+        log.info("Upload start partnerId={}, configId={}, file={}, transform={}", partnerId, configId, file.getOriginalFilename(), transform);
+
+        // ✅ Repeat upload: answer from the earlier one, no GridFS copy and no second validation
+        String contentHash;
+        try (InputStream in = file.getInputStream()) {
+            contentHash = ContentHash.sha256(in);
+        } catch (IOException e) {
+            log.error("Upload failed", e);
+            return internalError(file.getOriginalFilename(), e);
+        }
+        if (!force) {
+            try {
+                RawLoaderMetadata previous = findPrevious(partnerId, configId, contentHash, transform);
+                if (previous != null) return duplicateOf(previous);
+            } catch (RuntimeException e) {
+                // the upload itself reports a config service that is down
+                log.warn("Duplicate check failed, processing the upload: {}", e.getMessage());
+            }
+        }
+
+        SheetFormat format = SheetFormat.detect(file.getOriginalFilename(), file.getContentType());
+        RawLoaderMetadata metadata = RawLoaderMetadata.newUpload(file.getOriginalFilename(), partnerId, configId, format.name());
+        metadata.setContentHash(contentHash);
+        // ✅ Reserve the heap the parse needs; over budget the upload waits its turn, then gets 429
+        try (AdmissionController.Permit permit = admission.admit(partnerId, admission.estimate(format, file.getSize()))) {
+            return ingest(metadata, new MultipartContent(file), transform);
+        }
+    }
 
     @Override
-    public UploadResponseDTO handleUpload(MultipartFile file, Long partnerId, String configId) {
+    public UploadResponseDTO ingest(RawLoaderMetadata metadata, UploadContent content, boolean transform) {
+        TransformedWriter writer = null;
+        String runId = new ObjectId().toHexString();
+        ValidationErrorStore.Spill spill = null;
+        UploadTasks tasks = null;
+        String metadataId = metadata.getId();
+        Long partnerId = metadata.getPartnerId();
+        String configId = metadata.getConfigId();
+        metrics.uploadsInFlight().incrementAndGet();
         try {
-            log.info("Upload start partnerId={}, configId={}, file={}", partnerId, configId, file.getOriginalFilename());
-
-            PartnerDTO partner = partnerClient.getPartner(partnerId);
-            LoaderConfigDTO config = configClient.getConfig(partnerId, configId);
-
-            RawLoaderMetadata metadata = new RawLoaderMetadata();
-            metadata.setFileName(file.getOriginalFilename());
-            metadata.setPartnerId(partnerId);
-            metadata.setConfigId(configId);
-            metadata.setUploadDate(Instant.now());
-
-            // ✅ Always store the file in GridFS first
-            String gridFsId;
-            try (InputStream in = file.getInputStream()) {
-                gridFsId = fileStorageService.store(
-                        file.getOriginalFilename(),
-                        file.getContentType(),
-                        in
-                );
+            SheetFormat format = SheetFormat.of(metadata.getFileFormat(), metadata.getFileName());
+
+            // ✅ Partner check, config fetch and GridFS write start together; validation waits only for the config
+            tasks = new UploadTasks(content);
+            tasks.start(partnerId, configId);
+            LoaderConfigDTO config = tasks.config();
+            metadata.setConfigVersion(config.getVersion());
+
+            // rows are staged under the unpublished metadata id and only kept if the whole file is valid
+            StorageLayout layout = StorageLayout.orDefault(config.getStorageLayout());
+            TransformedWriter staged = transform ? transformedStore.open(metadataId, runId, layout) : null;
+            writer = staged;
+            spill = errorStore.open(metadataId);
+            ValidationResult result;
+            try (InputStream in = content.validationStream()) {
+                // ✅ Rows are converted, template included, by the validation workers; the merge only writes them
+                result = validatorService.validate(in, format, config, bound -> transformService.rowConverter(config, bound),
+                        staged == null ? null : converted -> converted.forEach(staged::add), spill);
             }
-            metadata.setGridFsId(gridFsId);
+            spill.finish();
+            tasks.rethrowFailure();
+            List<ValidationError> errors = result.getErrors();
+            metrics.bytes(partnerId, configId, content.size());
+            metadata.setFileSize(content.size());
+            metrics.rows(partnerId, configId, "validated", result.getRowCount());
+            metrics.errors(partnerId, configId, result.getErrorCount());
+            metadata.setRowCount(result.getRowCount());
+            metadata.setSample(result.getSample());
+            if (metadata.getContentHash() == null) metadata.setContentHash(content.contentHash());
 
-            // ✅ Validate Excel
-            List<ValidationError> errors;
-            try (InputStream in = file.getInputStream()) {
-                errors = validatorService.validate(in, config);
+            // header/structure failures: the file is useless, so the GridFS write is aborted
+            boolean structural = errors.stream().anyMatch(e -> e.getRow() == null);
+            if (structural) {
+                tasks.abort();
+            } else {
+                metadata.setGridFsId(tasks.stored());
             }
 
             if (!errors.isEmpty()) {
+                discardStaged(writer, metadataId, runId);
                 metadata.setValidationStatus("FAILED");
                 metadata.setErrorMessages(errors);
+                metadata.setErrorCount(result.getErrorCount());
+                metadata.setErrorGroups(result.getErrorGroups());
                 metadataRepository.save(metadata);
+                String message = result.isAborted()
+                        ? "Validation stopped after " + result.getErrorCount() + " errors"
+                        : "Validation failed";
                 return new UploadResponseDTO(
-                        metadata.getId(), false, errors, "Validation failed",
-                        metadata.getFileName(), metadata.getValidationStatus()
+                        metadata.getId(), false, errors, message,
+                        metadata.getFileName(), metadata.getValidationStatus(),
+                        result.getErrorCount(), result.getErrorGroups(), false
                 );
             }
 
+            if (writer != null) {
+                metadata.setTransformedRows((int) writer.finish());
+                metadata.setStorageLayout(layout);
+                metadata.setTransformRunId(runId);
+            }
             metadata.setValidationStatus("VALIDATED");
             metadataRepository.save(metadata);
 
             return new UploadResponseDTO(
                     metadata.getId(), true, List.of(),
-                    "File validated and stored successfully",
+                    writer != null ? "File validated, stored and transformed successfully" : "File validated and stored successfully",
                     metadata.getFileName(), metadata.getValidationStatus()
             );
 
         } catch (FileValidationException e) {
+            abort(tasks);
+            discardStaged(writer, metadataId, runId);
+            discardErrors(spill, metadataId);
             log.error("Validation failed", e);
             return new UploadResponseDTO(null, false, List.of(new ValidationError(null, "validation", e.getMessage())),
-                    "Validation failed", file.getOriginalFilename(), "FAILED");
+                    "Validation failed", metadata.getFileName(), "FAILED");
         } catch (Exception e) {
+            abort(tasks);
+            discardStaged(writer, metadataId, runId);
+            discardErrors(spill, metadataId);
             log.error("Upload failed", e);
-            return new UploadResponseDTO(null, false, List.of(new ValidationError(null, "internal", e.getMessage())),
-                    "Internal error", file.getOriginalFilename(), "FAILED");
+            return internalError(metadata.getFileName(), e);
+        } finally {
+            metrics.uploadsInFlight().decrementAndGet();
+        }
+    }
+
+    private static UploadResponseDTO internalError(String fileName, Exception e) {
+        return new UploadResponseDTO(null, false, List.of(new ValidationError(null, "internal", e.getMessage())),
+                "Internal error", fileName, "FAILED");
+    }
+
+    /**
+     * The latest upload of the same bytes for this config, if its result still holds: validated against
+     * the current config version, with a file that is still stored, and transformed when a transform is
+     * asked for. A config without a version cannot tell whether it changed, so its results are never reused.
+     */
+    private RawLoaderMetadata findPrevious(Long partnerId, String configId, String contentHash, boolean transform) {
+        RawLoaderMetadata previous = metadataRepository
+                .findFirstByPartnerIdAndConfigIdAndContentHashOrderByUploadDateDesc(partnerId, configId, contentHash)
+                .orElse(null);
+        if (previous == null || previous.getGridFsId() == null || previous.getConfigVersion() == null) return null;
+        if (transform && "VALIDATED".equals(previous.getValidationStatus()) && previous.getTransformedRows() == null) return null;
+
+        LoaderConfigDTO config = metrics.time(IngestMetrics.Stage.CONFIG_FETCH, () -> configClient.getConfig(partnerId, configId));
+        if (!previous.getConfigVersion().equals(config.getVersion())) return null;
+        // the file may have been removed since: then the upload is processed in full
+        return fileStorageService.exists(previous.getGridFsId()) ? previous : null;
+    }
+
+    private UploadResponseDTO duplicateOf(RawLoaderMetadata previous) {
+        log.info("Upload is identical to {}, returning its result", previous.getId());
+        metrics.duplicate(previous.getPartnerId(), previous.getConfigId());
+        boolean valid = "VALIDATED".equals(previous.getValidationStatus());
+        return UploadResponseDTO.of(previous, valid ? "Identical file already validated" : "Identical file already failed validation", true);
+    }
+
+    private static void abort(UploadTasks tasks) {
+        if (tasks != null) tasks.abort();
+    }
+
+    /**
+     * The concurrent parts of one upload, started together on virtual threads. The first failure
+     * aborts the others: the content's streams are closed, so the GridFS write and the validation
+     * stop at their next read, and a file that was already stored is deleted.
+     */
+    private final class UploadTasks {
+
+        private final UploadContent content;
+        private CompletableFuture<PartnerDTO> partner;
+        private CompletableFuture<LoaderConfigDTO> config;
+        private CompletableFuture<String> stored;
+        private final AtomicBoolean aborted = new AtomicBoolean();
+
+        UploadTasks(UploadContent content) {
+            this.content = content;
+        }
+
+        void start(Long partnerId, String configId) throws IOException {
+            content.start();
+            stored = content.stored();
+            partner = CompletableFuture.supplyAsync(() -> metrics.time(IngestMetrics.Stage.PARTNER_LOOKUP,
+                    () -> partnerClient.getPartner(partnerId)), ioExecutor);
+            config = CompletableFuture.supplyAsync(() -> metrics.time(IngestMetrics.Stage.CONFIG_FETCH,
+                    () -> configClient.getConfig(partnerId, configId)), ioExecutor);
+
+            // a failed lookup or write stops the rest right away instead of after validation
+            partner.whenComplete((p, e) -> { if (e != null || p == null) abort(); });
+            config.whenComplete((c, e) -> { if (e != null) abort(); });
+            stored.whenComplete((id, e) -> { if (e != null) abort(); });
+        }
+
+        LoaderConfigDTO config() {
+            return await(config);
+        }
+
+        /**
+         * Surfaces the failure that aborted validation, rather than the "Stream closed" it caused.
+         */
+        void rethrowFailure() {
+            if (await(partner) == null) throw new FileValidationException("Unknown partner");
+            if (stored.isCompletedExceptionally()) await(stored);
+        }
+
+        String stored() {
+            return await(stored);
+        }
+
+        void abort() {
+            if (aborted.compareAndSet(false, true)) content.abort();
+        }
+    }
+
+    /**
+     * A multipart upload: read once and split, so GridFS and validation consume the same bytes concurrently.
+     */
+    private final class MultipartContent implements UploadContent {
+
+        private final MultipartFile file;
+        private InputStream[] branches;
+        private CompletableFuture<String> stored;
+
+        MultipartContent(MultipartFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void start() throws IOException {
+            // ✅ Single read of the upload: GridFS store and validation consume the same bytes concurrently
+            branches = StreamFanOut.split(file.getInputStream(), 2,
+                    properties.getUpload().getTeeChunkSize(), properties.getUpload().getTeeQueueDepth(), ioExecutor);
+
+            stored = CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = branches[0]) {
+                    return fileStorageService.store(file.getOriginalFilename(), file.getContentType(), in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, ioExecutor);
+        }
+
+        @Override
+        public InputStream validationStream() {
+            return branches[1];
+        }
+
+        @Override
+        public CompletableFuture<String> stored() {
+            return stored;
+        }
+
+        @Override
+        public long size() {
+            return file.getSize();
+        }
+
+        @Override
+        public String contentHash() {
+            return null; // hashed before the upload started
+        }
+
+        @Override
+        public void abort() {
+            if (branches == null) return;
+            for (InputStream branch : branches) {
+                try {
+                    branch.close();
+                } catch (IOException ignored) {
+                    // branches never fail to close
+                }
+            }
+            // the write may have finished just before the abort
+            if (stored != null) stored.thenAccept(this::deleteQuietly);
+        }
+
+        private void deleteQuietly(String gridFsId) {
+            try {
+                fileStorageService.delete(gridFsId);
+                log.info("Removed stored file {} of an aborted upload", gridFsId);
+            } catch (RuntimeException e) {
+                log.warn("Could not remove stored file {}: {}", gridFsId, e.getMessage());
+            }
+        }
+    }
+
+    private void discardStaged(TransformedWriter writer, String metadataId, String runId) {
+        if (writer == null) return;
+        writer.close();
+        transformedStore.discard(metadataId, runId);
+    }
+
+    private void discardErrors(ValidationErrorStore.Spill spill, String metadataId) {
+        if (spill == null) return;
+        spill.close();
+        errorStore.discard(metadataId);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
         }
     }
 
@@ -97,6 +376,39 @@ public class RawLoaderServiceImpl implements RawLoaderService {
     @Override
     public RawLoaderMetadata getMetadata(String id) {
         return metadataRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Metadata not found for id: " + id));
+                .orElseThrow(() -> new ResourceNotFoundException("Metadata not found for id: " + id));
+    }
+
+    @Override
+    public UploadPageDTO listUploads(Long partnerId, String configId, String validationStatus, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE)),
+                Sort.by(Sort.Direction.DESC, "uploadDate"));
+        boolean byConfig = configId != null && !configId.isBlank();
+        boolean byStatus = validationStatus != null && !validationStatus.isBlank();
+
+        Page<UploadSummary> result;
+        if (byConfig && byStatus) {
+            result = metadataRepository.findByPartnerIdAndConfigIdAndValidationStatus(partnerId, configId, validationStatus, pageable);
+        } else if (byConfig) {
+            result = metadataRepository.findByPartnerIdAndConfigId(partnerId, configId, pageable);
+        } else if (byStatus) {
+            result = metadataRepository.findByPartnerIdAndValidationStatus(partnerId, validationStatus, pageable);
+        } else {
+            result = metadataRepository.findByPartnerId(partnerId, pageable);
+        }
+        return new UploadPageDTO(result.getContent(), result.getNumber(), result.getSize(),
+                result.getTotalElements(), result.getTotalPages());
+    }
+
+    @Override
+    public ValidationErrorPageDTO listErrors(String metadataId, Long after, Integer size) {
+        RawLoaderMetadata metadata = metadataRepository.findById(metadataId)
+                .orElseThrow(() -> new ResourceNotFoundException("Metadata not found: " + metadataId));
+        if (metadata.getErrorCount() == null) {
+            // uploaded before errors were spilled: the metadata holds all of them
+            List<ValidationError> errors = metadata.getErrorMessages() == null ? List.of() : metadata.getErrorMessages();
+            return new ValidationErrorPageDTO(after == null ? errors : List.of(), errors.size(), null);
+        }
+        return errorStore.page(metadataId, metadata.getErrorCount(), after, size);
     }
 }
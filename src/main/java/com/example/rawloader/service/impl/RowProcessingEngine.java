@@ -0,0 +1,114 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.util.RowHandler;
+import com.example.rawloader.util.SheetRow;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Partitioned row processing: the reader thread cuts rows into batches, a worker pool
+ * validates/converts them in parallel and results are handed back in row order.
+ * At most {@code maxInFlightBatches} batches are queued or running, so a fast parser
+ * cannot run ahead of the workers.
+ */
+@Component
+public class RowProcessingEngine {
+
+    private final ForkJoinPool workers;
+    private final RawLoaderProperties.Ingest settings;
+
+    public RowProcessingEngine(@Qualifier("rowWorkerPool") ForkJoinPool workers, RawLoaderProperties properties) {
+        this.workers = workers;
+        this.settings = properties.getIngest();
+    }
+
+    /**
+     * @param worker turns one batch into a result; runs on a pool thread and must not touch shared state
+     * @param sink   receives results in row order on the reader thread; return false to stop reading
+     */
+    public <R> Pipeline<R> pipeline(Function<List<SheetRow>, R> worker, Predicate<R> sink) {
+        return new Pipeline<>(worker, sink, settings.getBatchSize(),
+                settings.effectiveMaxInFlightBatches(), settings.effectiveParallelism() > 1 ? workers : null);
+    }
+
+    public static final class Pipeline<R> implements RowHandler {
+
+        private final Function<List<SheetRow>, R> worker;
+        private final Predicate<R> sink;
+        private final int batchSize;
+        private final int maxInFlight;
+        private final ForkJoinPool pool;   // null → run batches inline
+        private final Deque<CompletableFuture<R>> inFlight = new ArrayDeque<>();
+        private List<SheetRow> batch;
+        private boolean stopped;
+
+        private Pipeline(Function<List<SheetRow>, R> worker, Predicate<R> sink, int batchSize, int maxInFlight, ForkJoinPool pool) {
+            this.worker = worker;
+            this.sink = sink;
+            this.batchSize = Math.max(1, batchSize);
+            this.maxInFlight = Math.max(1, maxInFlight);
+            this.pool = pool;
+            this.batch = new ArrayList<>(this.batchSize);
+        }
+
+        @Override
+        public boolean onRow(SheetRow row) {
+            if (stopped) return false;
+            batch.add(row);
+            if (batch.size() >= batchSize) submit();
+            return !stopped;
+        }
+
+        /**
+         * Processes the last partial batch and waits for everything in flight.
+         */
+        public void finish() {
+            if (!stopped && !batch.isEmpty()) submit();
+            while (!stopped && !inFlight.isEmpty()) drainOne();
+            cancel();
+        }
+
+        /**
+         * Drops queued batches, e.g. when the reader failed.
+         */
+        public void cancel() {
+            stopped = true;
+            CompletableFuture<R> f;
+            while ((f = inFlight.poll()) != null) f.cancel(false);
+        }
+
+        private void submit() {
+            List<SheetRow> full = batch;
+            batch = new ArrayList<>(batchSize);
+            if (pool == null) {
+                if (!sink.test(worker.apply(full))) stopped = true;
+                return;
+            }
+            inFlight.add(CompletableFuture.supplyAsync(() -> worker.apply(full), pool));
+            while (!stopped && inFlight.size() >= maxInFlight) drainOne();
+        }
+
+        private void drainOne() {
+            R result;
+            try {
+                result = inFlight.poll().join();
+            } catch (CompletionException e) {
+                cancel();
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+            if (!sink.test(result)) cancel();
+        }
+    }
+}
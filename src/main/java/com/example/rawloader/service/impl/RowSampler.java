@@ -0,0 +1,77 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.model.RowSample;
+import com.example.rawloader.util.SheetRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Keeps the first rows and a fixed-size reservoir sample of a streamed sheet. Rows are
+ * held as parsed and only the few kept ones are converted at the end. The reservoir uses
+ * Algorithm L, which draws random numbers only for rows that get in, not for every row.
+ * Blank rows are not sampled. Called from the reader thread only.
+ */
+final class RowSampler {
+
+    private final int headSize;
+    private final SheetRow[] reservoir;
+    private final List<SheetRow> head;
+    private final SplittableRandom random = new SplittableRandom();
+    private long seen;
+    private double w;
+    private long next;
+
+    RowSampler(int headSize, int spreadSize) {
+        this.headSize = Math.max(0, headSize);
+        this.reservoir = new SheetRow[Math.max(0, spreadSize)];
+        this.head = new ArrayList<>(this.headSize);
+    }
+
+    void offer(SheetRow row) {
+        if (row.isEmpty()) return;
+        if (head.size() < headSize) head.add(row);
+
+        int k = reservoir.length;
+        if (k > 0) {
+            if (seen < k) {
+                reservoir[(int) seen] = row;
+                if (seen == k - 1) {
+                    w = Math.exp(Math.log(uniform()) / k);
+                    next = seen + skip();
+                }
+            } else if (seen == next) {
+                reservoir[random.nextInt(k)] = row;
+                w *= Math.exp(Math.log(uniform()) / k);
+                next += skip();
+            }
+        }
+        seen++;
+    }
+
+    RowSample build(LoaderPlan.Bound bound) {
+        List<Map<String, Object>> first = new ArrayList<>(head.size());
+        for (SheetRow row : head) first.add(bound.convert(row));
+
+        SheetRow[] kept = Arrays.stream(reservoir).filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(SheetRow::getRowNum)).toArray(SheetRow[]::new);
+        List<Map<String, Object>> spread = new ArrayList<>(kept.length);
+        for (SheetRow row : kept) spread.add(bound.convert(row));
+
+        return new RowSample(first, spread, seen);
+    }
+
+    private long skip() {
+        return (long) Math.floor(Math.log(uniform()) / Math.log(1 - w)) + 1;
+    }
+
+    // (0, 1]: log(0) is never taken
+    private double uniform() {
+        return 1 - random.nextDouble();
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.exception.ResourceNotFoundException;
+import com.example.rawloader.exception.TooManyRequestsException;
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.TransformJob;
+import com.example.rawloader.repository.RawLoaderMetadataRepository;
+import com.example.rawloader.repository.TransformJobRepository;
+import com.example.rawloader.service.api.TransformJobService;
+import com.example.rawloader.service.api.TransformProgress;
+import com.example.rawloader.service.api.TransformService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs transforms in the background. Concurrency is capped per node and, counting the jobs
+ * persisted in transform_jobs, per partner; an upload has one active job at a time. A job stays QUEUED
+ * until the node has heap for it; it is never refused for memory. Progress (rows, rows/sec, ETA) is persisted too,
+ * and cancellation is checked on every progress report, also when requested through another node.
+ * <p>
+ * Nodes keep a heartbeat on the jobs they hold; jobs whose node stopped (restart, crash) are
+ * found by {@link #recover()} and closed as INTERRUPTED, or CANCELLED when that was asked for.
+ */
+@Service
+@Slf4j
+public class TransformJobServiceImpl implements TransformJobService {
+
+    static final String QUEUED = "QUEUED";
+    static final String RUNNING = "RUNNING";
+    static final String COMPLETED = "COMPLETED";
+    static final String FAILED = "FAILED";
+    static final String CANCELLED = "CANCELLED";
+    static final String INTERRUPTED = "INTERRUPTED";
+    private static final List<String> ACTIVE = List.of(QUEUED, RUNNING);
+
+    private final TransformService transformService;
+    private final TransformJobRepository jobRepository;
+    private final RawLoaderMetadataRepository metadataRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService jobExecutor;
+    private final RawLoaderProperties.Jobs settings;
+    private final IngestMetrics metrics;
+    private final Semaphore slots;
+    // jobs queued or running on this node
+    private final Map<String, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+
+    public TransformJobServiceImpl(TransformService transformService,
+                                   TransformJobRepository jobRepository,
+                                   RawLoaderMetadataRepository metadataRepository,
+                                   MongoTemplate mongoTemplate,
+                                   @Qualifier("jobExecutor") ExecutorService jobExecutor,
+                                   RawLoaderProperties properties,
+                                   IngestMetrics metrics) {
+        this.transformService = transformService;
+        this.jobRepository = jobRepository;
+        this.metadataRepository = metadataRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.jobExecutor = jobExecutor;
+        this.settings = properties.getJobs();
+        this.metrics = metrics;
+        this.slots = new Semaphore(Math.max(1, settings.getMaxConcurrent()), true);
+    }
+
+    @Override
+    public TransformJob submit(String metadataId) {
+        RawLoaderMetadata metadata = metadataRepository.findById(metadataId)
+                .orElseThrow(() -> new ResourceNotFoundException("Metadata not found: " + metadataId));
+
+        Long partnerId = metadata.getPartnerId();
+        TransformJob job = new TransformJob();
+        job.setMetadataId(metadataId);
+        job.setPartnerId(partnerId);
+        job.setStatus(QUEUED);
+        job.setTotalRows(metadata.getRowCount());
+        job.setCreatedAt(Instant.now());
+        job.setHeartbeatAt(job.getCreatedAt());
+        jobRepository.save(job);
+
+        // ✅ Counted after the insert, across nodes: concurrent submits may both be rejected, never both admitted
+        long active = mongoTemplate.count(Query.query(Criteria.where("partnerId").is(partnerId).and("status").in(ACTIVE)),
+                TransformJob.class);
+        if (active > settings.getMaxPerPartner()) {
+            jobRepository.deleteById(job.getId());
+            throw new TooManyRequestsException("Too many active transform jobs for partner " + partnerId,
+                    settings.getRetryAfterSeconds());
+        }
+        // the transform's lease would fail the second job anyway; answer it now instead of after it queued
+        long forUpload = mongoTemplate.count(Query.query(Criteria.where("metadataId").is(metadataId).and("status").in(ACTIVE)),
+                TransformJob.class);
+        if (forUpload > 1) {
+            jobRepository.deleteById(job.getId());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A transform job for " + metadataId + " is already active");
+        }
+
+        cancelFlags.put(job.getId(), new AtomicBoolean());
+        metrics.jobsQueued().incrementAndGet();
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            metrics.jobsQueued().decrementAndGet();
+            cancelFlags.remove(job.getId());
+            jobRepository.deleteById(job.getId());
+            throw e;
+        }
+        log.info("Transform job {} queued for metadataId={}", job.getId(), metadataId);
+        return job;
+    }
+
+    @Override
+    public TransformJob getJob(String jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Transform job not found: " + jobId));
+    }
+
+    @Override
+    public TransformJob cancel(String jobId) {
+        TransformJob job = getJob(jobId);
+        if (isFinished(job.getStatus())) return job;
+
+        AtomicBoolean flag = cancelFlags.get(jobId);
+        if (flag != null) flag.set(true);
+        update(jobId, new Update().set("cancelRequested", true));
+        job.setCancelRequested(true);
+        return job;
+    }
+
+    /**
+     * Keeps the jobs of this node alive in transform_jobs.
+     */
+    @Scheduled(fixedDelayString = "${rawloader.jobs.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        if (cancelFlags.isEmpty()) return;
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(cancelFlags.keySet()).and("status").in(ACTIVE)),
+                new Update().set("heartbeatAt", Instant.now()), TransformJob.class);
+    }
+
+    /**
+     * Closes jobs left QUEUED or RUNNING by a node that stopped, so they no longer count against
+     * their partner's cap. Runs at startup and then periodically; a new job resumes from the
+     * transform's checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${rawloader.jobs.heartbeat-interval:PT30S}")
+    public void recover() {
+        Instant now = Instant.now();
+        Criteria stale = Criteria.where("status").in(ACTIVE).orOperator(
+                Criteria.where("heartbeatAt").lt(now.minus(settings.getStaleAfter())),
+                Criteria.where("heartbeatAt").exists(false));
+        long cancelled = mongoTemplate.updateMulti(Query.query(new Criteria().andOperator(stale,
+                        Criteria.where("cancelRequested").is(true))),
+                new Update().set("status", CANCELLED).set("finishedAt", now).set("etaSeconds", null),
+                TransformJob.class).getModifiedCount();
+        long interrupted = mongoTemplate.updateMulti(Query.query(stale),
+                new Update().set("status", INTERRUPTED).set("finishedAt", now).set("etaSeconds", null)
+                        .set("errorMessage", "The node running the job stopped; submit again to resume"),
+                TransformJob.class).getModifiedCount();
+        if (cancelled + interrupted > 0) {
+            log.warn("Closed {} orphaned transform jobs ({} cancelled, {} interrupted)", cancelled + interrupted,
+                    cancelled, interrupted);
+        }
+    }
+
+    private void run(TransformJob job) {
+        String jobId = job.getId();
+        boolean running = false;
+        try {
+            slots.acquire();
+            metrics.jobsQueued().decrementAndGet();
+            metrics.jobsRunning().incrementAndGet();
+            running = true;
+            try {
+                if (isCancelRequested(jobId)) {
+                    finish(jobId, CANCELLED, null, null);
+                    return;
+                }
+                // QUEUED until the transform has memory to start: a busy node delays the job instead of failing it
+                JobProgress progress = new JobProgress(jobId, job.getTotalRows());
+                int inserted = transformService.transform(job.getMetadataId(), progress);
+                progress.persist(inserted);
+                finish(jobId, COMPLETED, inserted, null);
+            } finally {
+                slots.release();
+            }
+        } catch (CancellationException e) {
+            finish(jobId, CANCELLED, null, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(jobId, FAILED, null, "Interrupted");
+        } catch (Exception e) {
+            log.error("Transform job {} failed", jobId, e);
+            finish(jobId, FAILED, null, e.getMessage());
+        } finally {
+            (running ? metrics.jobsRunning() : metrics.jobsQueued()).decrementAndGet();
+            cancelFlags.remove(jobId);
+        }
+    }
+
+    private void finish(String jobId, String status, Integer inserted, String error) {
+        Update update = new Update().set("status", status).set("finishedAt", Instant.now()).set("etaSeconds", null);
+        if (inserted != null) update.set("insertedRows", inserted);
+        if (error != null) update.set("errorMessage", error);
+        update(jobId, update);
+        log.info("Transform job {} finished with status {}", jobId, status);
+    }
+
+    private boolean isCancelRequested(String jobId) {
+        AtomicBoolean flag = cancelFlags.get(jobId);
+        if (flag != null && flag.get()) return true;
+        TransformJob stored = jobRepository.findById(jobId).orElse(null);
+        return stored != null && stored.isCancelRequested();
+    }
+
+    // partial updates so a concurrent cancel request is never overwritten
+    private void update(String jobId, Update update) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)), update, TransformJob.class);
+    }
+
+    private static boolean isFinished(String status) {
+        return status != null && !ACTIVE.contains(status);
+    }
+
+    /**
+     * Throttled progress writer; also the point where cancellation is observed, while waiting for memory too.
+     */
+    private final class JobProgress implements TransformProgress {
+
+        private final String jobId;
+        private final Integer totalRows;
+        private final long intervalNanos = settings.getProgressInterval().toNanos();
+        private Instant started = Instant.now();
+        private long lastPersist = System.nanoTime();
+
+        JobProgress(String jobId, Integer totalRows) {
+            this.jobId = jobId;
+            this.totalRows = totalRows;
+        }
+
+        @Override
+        public boolean onWaiting() {
+            return !isCancelRequested(jobId);
+        }
+
+        @Override
+        public void onStarted() {
+            started = Instant.now();
+            lastPersist = System.nanoTime();
+            update(jobId, new Update().set("status", RUNNING).set("startedAt", started));
+        }
+
+        @Override
+        public boolean onRows(long rowsProcessed) {
+            long now = System.nanoTime();
+            if (now - lastPersist < intervalNanos) {
+                AtomicBoolean flag = cancelFlags.get(jobId);
+                return flag == null || !flag.get();
+            }
+            lastPersist = now;
+            persist(rowsProcessed);
+            return !isCancelRequested(jobId);
+        }
+
+        void persist(long rowsProcessed) {
+            double seconds = Math.max(Duration.between(started, Instant.now()).toMillis(), 1) / 1000d;
+            double rate = rowsProcessed / seconds;
+            Long eta = (totalRows != null && rate > 0) ? (long) Math.ceil(Math.max(totalRows - rowsProcessed, 0) / rate) : null;
+            update(jobId, new Update()
+                    .set("rowsProcessed", rowsProcessed)
+                    .set("rowsPerSecond", rate)
+                    .set("etaSeconds", eta));
+        }
+    }
+}
@@ -1,24 +1,42 @@
 package com.example.rawloader.service.impl;
 
 import com.example.rawloader.client.ConfigClient;
-import com.example.rawloader.model.LoaderColumnDTO;
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
 import com.example.rawloader.model.LoaderConfigDTO;
 import com.example.rawloader.model.RawLoaderMetadata;
-import com.example.rawloader.model.RawLoaderTransformed;
+import com.example.rawloader.model.RowSample;
+import com.example.rawloader.model.StorageLayout;
+import com.example.rawloader.model.TransformCheckpoint;
 import com.example.rawloader.repository.RawLoaderMetadataRepository;
-import com.example.rawloader.repository.RawLoaderTransformedRepository;
 import com.example.rawloader.service.api.FileStorageService;
+import com.example.rawloader.service.api.TransformProgress;
 import com.example.rawloader.service.api.TransformService;
+import com.example.rawloader.util.RowHandler;
+import com.example.rawloader.util.SheetFormat;
+import com.example.rawloader.util.SheetRow;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.usermodel.DateUtil;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.InputStream;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
@@ -26,99 +44,177 @@ import java.util.*;
 public class TransformServiceImpl implements TransformService {
 
     private final RawLoaderMetadataRepository metadataRepository;
-    private final RawLoaderTransformedRepository transformedRepository;
     private final FileStorageService fileStorageService;
     private final ConfigClient configClient;
+    private final RowProcessingEngine engine;
+    private final MongoTemplate mongoTemplate;
+    private final TransformedStore transformedStore;
+    private final IngestMetrics metrics;
+    private final RawLoaderProperties properties;
+    private final AdmissionController admission;
 
     @Override
     public int transform(String metadataId) {
+        return transform(metadataId, TransformProgress.NONE, false);
+    }
+
+    @Override
+    public int transform(String metadataId, TransformProgress progress) {
+        return transform(metadataId, progress, true);
+    }
+
+    // ✅ A caller on an HTTP request gets 429 when memory stays short; a background job keeps its place in line
+    private int transform(String metadataId, TransformProgress progress, boolean background) {
         RawLoaderMetadata metadata = metadataRepository.findById(metadataId)
                 .orElseThrow(() -> new RuntimeException("Metadata not found: " + metadataId));
 
-        LoaderConfigDTO config = configClient.getConfig(metadata.getPartnerId(), metadata.getConfigId());
-
-        try (InputStream in = fileStorageService.downloadByMetadataId(metadataId);
-             Workbook workbook = WorkbookFactory.create(in)) {
+        SheetFormat format = SheetFormat.of(metadata.getFileFormat(), metadata.getFileName());
+        long bytes = admission.estimate(format, metadata.getFileSize());
+        try (AdmissionController.Permit permit = background
+                ? admission.await(metadata.getPartnerId(), bytes, () -> !progress.onWaiting())
+                : admission.admit(metadata.getPartnerId(), bytes)) {
+            progress.onStarted();
+            return transform(metadata, format, progress);
+        }
+    }
 
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet == null) throw new RuntimeException("No sheet found in workbook");
+    private int transform(RawLoaderMetadata metadata, SheetFormat format, TransformProgress progress) {
+        LoaderConfigDTO config = configOf(metadata);
+        StorageLayout layout = StorageLayout.orDefault(config.getStorageLayout());
 
-            Row headerRow = sheet.getRow(0);
-            if (headerRow == null) throw new RuntimeException("No header row found");
+        // ✅ One writer per upload: the checkpoint is read under a lease that every later write checks
+        Lease lease = new Lease(metadata.getId());
+        RawLoaderMetadata claimed = lease.claim();
+        try {
+            return transform(claimed, format, config, layout, lease, progress);
+        } catch (RuntimeException e) {
+            lease.release();
+            throw e;
+        }
+    }
 
-            Map<String, Integer> headerIndex = new HashMap<>();
-            for (Cell c : headerRow) {
-                headerIndex.put(c.getStringCellValue().trim(), c.getColumnIndex());
-            }
+    private int transform(RawLoaderMetadata metadata, SheetFormat format, LoaderConfigDTO config, StorageLayout layout,
+                          Lease lease, TransformProgress progress) {
+        String metadataId = metadata.getId();
 
-            DataFormatter formatter = new DataFormatter();
-            List<RawLoaderTransformed> toInsert = new ArrayList<>();
+        // ✅ Resume after the last checkpoint of an unfinished run with the same config, else start over
+        TransformCheckpoint checkpoint = metadata.getTransformCheckpoint();
+        if (checkpoint != null && checkpoint.getRunId() != null && checkpoint.getLayout() == layout
+                && Objects.equals(checkpoint.getConfigVersion(), config.getVersion())) {
+            log.info("Resuming transformation of {} after file row {} ({} rows written)", metadataId,
+                    checkpoint.getSourceRow(), checkpoint.getRows());
+            transformedStore.discardFrom(metadataId, checkpoint.getRunId(), checkpoint.getRows());
+        } else {
+            checkpoint = new TransformCheckpoint();
+            checkpoint.setRunId(new ObjectId().toHexString());
+            checkpoint.setLayout(layout);
+            checkpoint.setConfigVersion(config.getVersion());
+            lease.save(checkpoint);
+        }
+        TransformCheckpoint resumed = checkpoint;
+        // unfinished runs in the layout this one is not writing; readers keep the published rows until it completes
+        transformedStore.discardOtherLayout(metadataId, layout, metadata.getTransformRunId());
+        long firstRow = resumed.getRows();
+        int checkpointRows = Math.max(1, checkpointRows());
 
-            for (int r = 1; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
+        try (InputStream in = fileStorageService.downloadByMetadataId(metadataId);
+             TransformedWriter writer = transformedStore.open(metadataId, resumed.getRunId(), layout, firstRow)) {
+            long[] rows = {firstRow};
+            long[] checkpointed = {firstRow};
+            boolean[] cancelled = new boolean[1];
 
-                Map<String, Object> transformedRow = new LinkedHashMap<>();
-                for (LoaderColumnDTO col : config.getColumnMappings()) {
-                    Integer idx = headerIndex.get(col.getHeader());
-                    if (idx == null) {
-                        transformedRow.put(col.getKey(), null);
-                        continue;
-                    }
-                    Cell cell = row.getCell(idx);
-                    String shown = formatter.formatCellValue(cell);
-                    Object value = convertValue(cell, shown, col.getType(), col.getFormat());
-                    transformedRow.put(col.getKey(), value);
+            RowMapper mapper = new RowMapper(config, true, resumed.getSourceRow(), converted -> {
+                for (Map<String, Object> transformedRow : converted.rows()) writer.add(transformedRow);
+                rows[0] += converted.rows().size();
+                if (rows[0] - checkpointed[0] >= checkpointRows) {
+                    checkpointed[0] = firstRow + writer.flush();
+                    resumed.setSourceRow(converted.lastRow());
+                    resumed.setRows(checkpointed[0]);
+                    lease.save(resumed);
+                } else {
+                    lease.renewIfDue();
                 }
-
-                RawLoaderTransformed doc = new RawLoaderTransformed();
-                doc.setMetadataId(metadataId);
-                doc.setTransformedRow(transformedRow);
-                toInsert.add(doc);
+                cancelled[0] = !progress.onRows(rows[0]);
+                return !cancelled[0];
+            });
+            try {
+                // re-reading what a resumed run already wrote can outlast the lease: it is kept while skipping too
+                int skipThrough = resumed.getSourceRow();
+                format.reader().read(in, row -> {
+                    if (row.getRowNum() <= skipThrough) lease.renewIfDue();
+                    return mapper.onRow(row);
+                });
+                mapper.finish();
+            } finally {
+                mapper.cancel();
             }
+            if (cancelled[0]) throw new CancellationException("Transformation cancelled");
 
-            transformedRepository.saveAll(toInsert);
-            return toInsert.size();
+            long total = firstRow + writer.finish();
+            metrics.rows(metadata.getPartnerId(), metadata.getConfigId(), "transformed", total - firstRow);
+            // rows of earlier runs, the published one included: still holding the lease, no other run is writing
+            lease.renew();
+            transformedStore.discardOtherRuns(metadataId, resumed.getRunId());
+            // readers pick the layout and the run up from the metadata
+            lease.publish(new Update().set("storageLayout", layout).set("transformRunId", resumed.getRunId())
+                    .unset("transformCheckpoint"));
+            return (int) total;
 
+        } catch (CancellationException e) {
+            log.info("Transformation cancelled for {}; the next run resumes after row {}", metadataId, resumed.getRows());
+            throw e;
+        } catch (ResponseStatusException e) {
+            // lost the lease, or a status from a dependency: the caller answers with it
+            log.warn("Transformation of {} stopped after row {}: {}", metadataId, resumed.getRows(), e.getReason());
+            throw e;
         } catch (Exception e) {
-            log.error("Transformation failed for {}: {}", metadataId, e.getMessage(), e);
-            throw new RuntimeException("Transformation failed: " + e.getMessage());
+            log.error("Transformation failed for {}; the next run resumes after row {}: {}", metadataId,
+                    resumed.getRows(), e.getMessage(), e);
+            throw new RuntimeException("Transformation failed: " + e.getMessage(), e);
         }
     }
 
     @Override
-    public List<Map<String, Object>> preview(String metadataId, int limit) {
+    public List<Map<String, Object>> preview(String metadataId, int limit, boolean spread) {
         RawLoaderMetadata metadata = metadataRepository.findById(metadataId)
                 .orElseThrow(() -> new RuntimeException("Metadata not found: " + metadataId));
 
-        LoaderConfigDTO config = configClient.getConfig(metadata.getPartnerId(), metadata.getConfigId());
-
-        try (InputStream in = fileStorageService.downloadByMetadataId(metadataId);
-             Workbook workbook = WorkbookFactory.create(in)) {
+        // ✅ Sample captured at upload: no GridFS read, no parsing
+        List<Map<String, Object>> sampled = fromSample(metadata.getSample(), limit, spread);
+        if (sampled != null) return finishSample(metadata, sampled);
 
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
-            Map<String, Integer> headerIndex = new HashMap<>();
-            for (Cell c : headerRow) headerIndex.put(c.getStringCellValue().trim(), c.getColumnIndex());
+        LoaderConfigDTO config = configOf(metadata);
+        SheetFormat format = SheetFormat.of(metadata.getFileFormat(), metadata.getFileName());
 
-            DataFormatter formatter = new DataFormatter();
+        try (InputStream in = fileStorageService.downloadByMetadataId(metadataId)) {
             List<Map<String, Object>> preview = new ArrayList<>();
+            if (limit <= 0) return preview;
 
-            for (int r = 1; r <= sheet.getLastRowNum() && preview.size() < limit; r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
-
-                Map<String, Object> transformedRow = new LinkedHashMap<>();
-                for (LoaderColumnDTO col : config.getColumnMappings()) {
-                    Integer idx = headerIndex.get(col.getHeader());
-                    Cell cell = idx != null ? row.getCell(idx) : null;
-                    String shown = (cell == null) ? "" : formatter.formatCellValue(cell);
-                    Object value = convertValue(cell, shown, col.getType(), col.getFormat());
-                    transformedRow.put(col.getKey(), value);
-                }
-                preview.add(transformedRow);
+            if (spread) {
+                // no sample to answer from: draw one over the whole file, as the upload would have
+                RowSampler sampler = new RowSampler(0, limit);
+                LoaderPlan plan = LoaderPlan.compile(config);
+                LoaderPlan.Bound[] bound = new LoaderPlan.Bound[1];
+                format.reader().read(in, row -> {
+                    if (bound[0] != null) {
+                        sampler.offer(row);
+                    } else if (row.getRowNum() == 0) {
+                        bound[0] = plan.bind(row);
+                    } else {
+                        throw new IllegalStateException("No header row found");
+                    }
+                    return true;
+                });
+                return bound[0] == null ? preview : finishSample(metadata, sampler.build(bound[0]).getSpread());
             }
 
+            // sequential: stops the reader as soon as enough rows are collected
+            RowMapper mapper = new RowMapper(config, false, 0, converted -> {
+                preview.addAll(converted.rows());
+                return preview.size() < limit;
+            });
+            format.reader().read(in, row -> (row.getRowNum() != 0 && row.isEmpty()) || mapper.onRow(row));
+
             return preview;
 
         } catch (Exception e) {
@@ -127,20 +223,180 @@ public class TransformServiceImpl implements TransformService {
         }
     }
 
-    private Object convertValue(Cell cell, String shown, String type, String format) {
-        if (type == null) return shown;
-        switch (type.toLowerCase()) {
-            case "number":
-                try { return Double.parseDouble(shown); } catch (Exception e) { return null; }
-            case "date":
-                try {
-                    if (cell != null && DateUtil.isCellDateFormatted(cell))
-                        return cell.getLocalDateTimeCellValue().toLocalDate().toString();
-                    DateTimeFormatter f = DateTimeFormatter.ofPattern(format != null ? format : "dd/MM/yyyy");
-                    return LocalDate.parse(shown, f).toString();
-                } catch (Exception e) { return null; }
-            default:
-                return shown;
+    // null when the sample cannot answer, e.g. more head rows are asked for than were captured
+    private static List<Map<String, Object>> fromSample(RowSample sample, int limit, boolean spread) {
+        if (sample == null || limit <= 0) return null;
+        List<Map<String, Object>> rows = spread ? sample.getSpread() : sample.getHead();
+        if (rows == null) return null;
+        boolean complete = spread || rows.size() >= limit || rows.size() >= sample.getRowsSeen();
+        return complete ? new ArrayList<>(rows.subList(0, Math.min(limit, rows.size()))) : null;
+    }
+
+    /**
+     * How a data row becomes the stored map once the header is bound; a null result drops the row.
+     * Runs on worker threads. Overridden by {@link JsltTransformService}.
+     */
+    Function<SheetRow, Map<String, Object>> rowConverter(LoaderConfigDTO config, LoaderPlan.Bound bound) {
+        return bound::convert;
+    }
+
+    /**
+     * Finishes rows of the upload-time sample, which only went through the column mapping.
+     */
+    List<Map<String, Object>> finishSample(RawLoaderMetadata metadata, List<Map<String, Object>> rows) {
+        return rows;
+    }
+
+    private int checkpointRows() {
+        return properties.getJobs().getCheckpointRows();
+    }
+
+    LoaderConfigDTO configOf(RawLoaderMetadata metadata) {
+        return metrics.time(IngestMetrics.Stage.CONFIG_FETCH,
+                () -> configClient.getConfig(metadata.getPartnerId(), metadata.getConfigId()));
+    }
+
+    /**
+     * The claim of one transform call on an upload's checkpoint. Writes of the checkpoint and the final
+     * publish only go through while this call still owns it; one that lost it stops there.
+     */
+    private final class Lease {
+
+        private final String metadataId;
+        private final String owner = new ObjectId().toHexString();
+        private final Duration duration = properties.getJobs().getLeaseDuration();
+        private long renewedAt;
+
+        Lease(String metadataId) {
+            this.metadataId = metadataId;
+        }
+
+        /**
+         * @return the metadata as of the claim, with the checkpoint to resume from
+         * @throws ResponseStatusException 409 while another run holds the lease
+         */
+        RawLoaderMetadata claim() {
+            Instant now = Instant.now();
+            Query free = Query.query(new Criteria().andOperator(Criteria.where("_id").is(metadataId), new Criteria().orOperator(
+                    Criteria.where("transformCheckpoint.leaseUntil").exists(false),
+                    Criteria.where("transformCheckpoint.leaseUntil").lt(now))));
+            RawLoaderMetadata claimed = mongoTemplate.findAndModify(free,
+                    new Update().set("transformCheckpoint.owner", owner).set("transformCheckpoint.leaseUntil", now.plus(duration)),
+                    FindAndModifyOptions.options().returnNew(true), RawLoaderMetadata.class);
+            if (claimed == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A transformation of " + metadataId + " is already running");
+            }
+            renewedAt = System.nanoTime();
+            return claimed;
+        }
+
+        void save(TransformCheckpoint checkpoint) {
+            Instant now = Instant.now();
+            checkpoint.setOwner(owner);
+            checkpoint.setLeaseUntil(now.plus(duration));
+            checkpoint.setUpdatedAt(now);
+            write(new Update().set("transformCheckpoint", checkpoint));
+        }
+
+        void renew() {
+            write(new Update().set("transformCheckpoint.leaseUntil", Instant.now().plus(duration)));
+        }
+
+        // between checkpoints: a third of the lease at the latest
+        void renewIfDue() {
+            if (System.nanoTime() - renewedAt >= duration.toNanos() / 3) renew();
+        }
+
+        void publish(Update update) {
+            write(update);
+        }
+
+        // a failed or cancelled run lets the next one start right away; its checkpoint stays
+        void release() {
+            try {
+                mongoTemplate.updateFirst(owned(), new Update().unset("transformCheckpoint.owner")
+                        .unset("transformCheckpoint.leaseUntil"), RawLoaderMetadata.class);
+            } catch (RuntimeException e) {
+                log.warn("Could not release the transform lease of {}: {}", metadataId, e.getMessage());
+            }
+        }
+
+        private void write(Update update) {
+            if (mongoTemplate.updateFirst(owned(), update, RawLoaderMetadata.class).getMatchedCount() == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Another run took over the transformation of " + metadataId);
+            }
+            renewedAt = System.nanoTime();
+        }
+
+        private Query owned() {
+            return Query.query(Criteria.where("_id").is(metadataId).and("transformCheckpoint.owner").is(owner));
+        }
+    }
+
+    /**
+     * Converted rows of a batch and the file row the batch ended at.
+     */
+    private record Converted(List<Map<String, Object>> rows, int lastRow) {
+    }
+
+    /**
+     * Maps streamed rows to canonical keys; the first row is the header.
+     * In parallel mode rows are converted in batches by the {@link RowProcessingEngine}.
+     */
+    private final class RowMapper implements RowHandler {
+
+        private final LoaderConfigDTO config;
+        private final LoaderPlan plan;
+        private final boolean parallel;
+        private final int skipThrough;
+        private final Predicate<Converted> sink;
+        private Function<SheetRow, Map<String, Object>> converter;
+        private RowProcessingEngine.Pipeline<Converted> rows;
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * @param skipThrough data rows up to this file row are parsed but not converted (already written)
+         */
+        RowMapper(LoaderConfigDTO config, boolean parallel, int skipThrough, Predicate<Converted> sink) {
+            this.config = config;
+            this.plan = LoaderPlan.compile(config);
+            this.parallel = parallel;
+            this.skipThrough = skipThrough;
+            this.sink = sink;
+        }
+
+        @Override
+        public boolean onRow(SheetRow row) {
+            if (converter == null) {
+                if (row.getRowNum() != 0) throw new IllegalStateException("No header row found");
+                metrics.recordSince(IngestMetrics.Stage.WORKBOOK_OPEN, startNanos);
+                converter = rowConverter(config, plan.bind(row));
+                if (parallel) rows = engine.pipeline(this::convertBatch, sink);
+                return true;
+            }
+            if (row.getRowNum() <= skipThrough) return true;
+            if (rows != null) return rows.onRow(row);
+            Map<String, Object> converted = converter.apply(row);
+            return converted == null || sink.test(new Converted(List.of(converted), row.getRowNum()));
+        }
+
+        void finish() {
+            if (rows != null) rows.finish();
+        }
+
+        void cancel() {
+            if (rows != null) rows.cancel();
+        }
+
+        private Converted convertBatch(List<SheetRow> batch) {
+            long start = System.nanoTime();
+            List<Map<String, Object>> out = new ArrayList<>(batch.size());
+            for (SheetRow row : batch) {
+                Map<String, Object> converted = converter.apply(row);
+                if (converted != null) out.add(converted);
+            }
+            metrics.recordSince(IngestMetrics.Stage.CONVERSION, start);
+            return new Converted(out, batch.get(batch.size() - 1).getRowNum());
         }
     }
 }
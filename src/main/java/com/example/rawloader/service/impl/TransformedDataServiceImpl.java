@@ -0,0 +1,149 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.dto.TransformedPageDTO;
+import com.example.rawloader.exception.ResourceNotFoundException;
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.RawLoaderTransformed;
+import com.example.rawloader.model.StorageLayout;
+import com.example.rawloader.model.TransformedChunk;
+import com.example.rawloader.repository.RawLoaderMetadataRepository;
+import com.example.rawloader.service.api.TransformedDataService;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads transformed rows in either storage layout. Rows of the COLUMNAR layout have no document
+ * of their own: their id is the row position, which also serves as the page cursor.
+ * Only the published run is read: rows of a run still going, cancelled or failed are not seen.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransformedDataServiceImpl implements TransformedDataService {
+
+    private final MongoTemplate mongoTemplate;
+    private final RawLoaderMetadataRepository metadataRepository;
+    private final RawLoaderProperties properties;
+
+    @Override
+    public TransformedPageDTO page(String metadataId, String after, Integer size) {
+        RawLoaderProperties.Read settings = properties.getRead();
+        int limit = Math.max(1, Math.min(size == null ? settings.getDefaultPageSize() : size, settings.getMaxPageSize()));
+        boolean first = after == null || after.isBlank();
+
+        // one extra row tells whether another page exists
+        RawLoaderMetadata metadata = published(metadataId);
+        List<RawLoaderTransformed> rows = switch (StorageLayout.orDefault(metadata.getStorageLayout())) {
+            case ROWS -> rowPage(metadataId, metadata.getTransformRunId(), first ? null : objectIdCursor(after), limit + 1);
+            case COLUMNAR -> chunkPage(metadataId, metadata.getTransformRunId(), first ? 0 : positionCursor(after) + 1, limit + 1);
+        };
+
+        if (rows.size() <= limit) return new TransformedPageDTO(rows, null);
+        List<RawLoaderTransformed> items = rows.subList(0, limit);
+        return new TransformedPageDTO(items, items.get(limit - 1).getId());
+    }
+
+    @Override
+    public long forEach(String metadataId, Consumer<RawLoaderTransformed> sink) {
+        RawLoaderMetadata metadata = published(metadataId);
+        Query query = Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(metadata.getTransformRunId()));
+        long count = 0;
+        if (StorageLayout.orDefault(metadata.getStorageLayout()) == StorageLayout.ROWS) {
+            query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(properties.getRead().getCursorBatchSize());
+            try (Stream<RawLoaderTransformed> rows = mongoTemplate.stream(query, RawLoaderTransformed.class)) {
+                for (var it = rows.iterator(); it.hasNext(); count++) {
+                    sink.accept(it.next());
+                }
+            }
+            return count;
+        }
+
+        // chunks are large: fetch them one or two at a time
+        query.with(Sort.by(Sort.Direction.ASC, "firstRow")).cursorBatchSize(2);
+        try (Stream<TransformedChunk> chunks = mongoTemplate.stream(query, TransformedChunk.class)) {
+            for (var it = chunks.iterator(); it.hasNext(); ) {
+                TransformedChunk chunk = it.next();
+                List<Map<String, Object>> decoded = ChunkCodec.decode(chunk);
+                for (int i = 0; i < decoded.size(); i++, count++) {
+                    sink.accept(toRow(metadataId, chunk, chunk.getFirstRow() + i, decoded.get(i)));
+                }
+            }
+        }
+        return count;
+    }
+
+    // layout and run id of the rows readers see; a null run id is rows stored before runs were tracked
+    private RawLoaderMetadata published(String metadataId) {
+        return metadataRepository.findById(metadataId)
+                .orElseThrow(() -> new ResourceNotFoundException("Metadata not found: " + metadataId));
+    }
+
+    private List<RawLoaderTransformed> rowPage(String metadataId, String runId, ObjectId after, int limit) {
+        Criteria criteria = Criteria.where("metadataId").is(metadataId).and("runId").is(runId);
+        if (after != null) criteria = criteria.and("_id").gt(after);
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        return mongoTemplate.find(query, RawLoaderTransformed.class);
+    }
+
+    private List<RawLoaderTransformed> chunkPage(String metadataId, String runId, long from, int limit) {
+        // start at the chunk holding row "from", then read on until the page is full
+        Query start = Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(runId).and("firstRow").lte(from))
+                .with(Sort.by(Sort.Direction.DESC, "firstRow")).limit(1);
+        start.fields().include("firstRow");
+        TransformedChunk head = mongoTemplate.findOne(start, TransformedChunk.class);
+        if (head == null) return List.of();
+
+        Query query = Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(runId)
+                .and("firstRow").gte(head.getFirstRow()))
+                .with(Sort.by(Sort.Direction.ASC, "firstRow")).cursorBatchSize(1);
+        List<RawLoaderTransformed> page = new ArrayList<>(limit);
+        try (Stream<TransformedChunk> chunks = mongoTemplate.stream(query, TransformedChunk.class)) {
+            for (var it = chunks.iterator(); it.hasNext() && page.size() < limit; ) {
+                TransformedChunk chunk = it.next();
+                List<Map<String, Object>> decoded = ChunkCodec.decode(chunk);
+                int i = (int) Math.max(0, from - chunk.getFirstRow());
+                for (; i < decoded.size() && page.size() < limit; i++) {
+                    page.add(toRow(metadataId, chunk, chunk.getFirstRow() + i, decoded.get(i)));
+                }
+            }
+        }
+        return page;
+    }
+
+    private static RawLoaderTransformed toRow(String metadataId, TransformedChunk chunk, long position, Map<String, Object> values) {
+        RawLoaderTransformed row = new RawLoaderTransformed();
+        row.setId(String.valueOf(position));
+        row.setMetadataId(metadataId);
+        row.setTransformedRow(values);
+        row.setInsertedAt(chunk.getInsertedAt());
+        return row;
+    }
+
+    private static ObjectId objectIdCursor(String after) {
+        if (!ObjectId.isValid(after)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + after);
+        }
+        return new ObjectId(after);
+    }
+
+    private static long positionCursor(String after) {
+        try {
+            return Long.parseLong(after);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + after);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.RawLoaderTransformed;
+import com.example.rawloader.model.StorageLayout;
+import com.example.rawloader.model.TransformedChunk;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opens layout specific writers for transformed rows and removes rows of failed or earlier runs from both layouts.
+ * Rows and chunks are inserted, unique by (metadataId, runId, position): a resumed run first removes the tail it
+ * writes again, a new run writes next to the rows readers see (those of {@code metadata.transformRunId}) until
+ * it is published. A duplicate key is a bug, not a retry.
+ */
+@Component
+@Slf4j
+public class TransformedStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService ioExecutor;
+    private final RawLoaderProperties.Writer settings;
+    private final Timer insertTimer;
+
+    public TransformedStore(MongoTemplate mongoTemplate,
+                            @Qualifier("ioExecutor") ExecutorService ioExecutor,
+                            RawLoaderProperties properties,
+                            IngestMetrics metrics) {
+        this.mongoTemplate = mongoTemplate;
+        this.ioExecutor = ioExecutor;
+        this.settings = properties.getWriter();
+        this.insertTimer = metrics.timer(IngestMetrics.Stage.MONGO_INSERT);
+    }
+
+    TransformedWriter open(String metadataId, String runId, StorageLayout layout) {
+        return open(metadataId, runId, layout, 0);
+    }
+
+    /**
+     * @param firstRow position of the first row added, e.g. where a resumed transform continues
+     */
+    TransformedWriter open(String metadataId, String runId, StorageLayout layout, long firstRow) {
+        return switch (StorageLayout.orDefault(layout)) {
+            case ROWS -> new RowWriter(metadataId, runId, firstRow);
+            case COLUMNAR -> new ChunkWriter(metadataId, runId, firstRow);
+        };
+    }
+
+    /**
+     * Best effort removal of what run {@code runId} wrote for {@code metadataId}.
+     */
+    void discard(String metadataId, String runId) {
+        Query run = Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(runId));
+        try {
+            mongoTemplate.remove(run, RawLoaderTransformed.class);
+            mongoTemplate.remove(run, TransformedChunk.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not discard transformed rows of run {} for {}: {}", runId, metadataId, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes rows of run {@code runId} at {@code position} and after: the unconfirmed tail of an interrupted run.
+     */
+    void discardFrom(String metadataId, String runId, long position) {
+        mongoTemplate.remove(Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(runId)
+                .and("row").gte(position)), RawLoaderTransformed.class);
+        mongoTemplate.remove(Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(runId)
+                .and("firstRow").gte(position)), TransformedChunk.class);
+    }
+
+    /**
+     * Removes the rows of {@code metadataId} stored in the layout other than {@code layout}, except those of
+     * {@code publishedRunId} that readers keep seeing until the run switching layouts is published.
+     */
+    void discardOtherLayout(String metadataId, StorageLayout layout, String publishedRunId) {
+        Query unpublished = Query.query(Criteria.where("metadataId").is(metadataId).and("runId").ne(publishedRunId));
+        switch (StorageLayout.orDefault(layout)) {
+            case ROWS -> mongoTemplate.remove(unpublished, TransformedChunk.class);
+            case COLUMNAR -> mongoTemplate.remove(unpublished, RawLoaderTransformed.class);
+        }
+    }
+
+    /**
+     * Removes what a completed run did not rewrite: rows past its end, chunks cut at other boundaries
+     * and rows written before runs were tracked.
+     */
+    void discardOtherRuns(String metadataId, String runId) {
+        Query stale = Query.query(Criteria.where("metadataId").is(metadataId).and("runId").ne(runId));
+        mongoTemplate.remove(stale, RawLoaderTransformed.class);
+        mongoTemplate.remove(stale, TransformedChunk.class);
+    }
+
+    // one document per row
+    private final class RowWriter implements TransformedWriter {
+
+        private final String metadataId;
+        private final String runId;
+        private final BulkRowWriter<RawLoaderTransformed> bulk;
+        private long position;
+
+        RowWriter(String metadataId, String runId, long firstRow) {
+            this.metadataId = metadataId;
+            this.runId = runId;
+            this.position = firstRow;
+            this.bulk = new BulkRowWriter<>(mongoTemplate, ioExecutor, RawLoaderTransformed.class, settings, insertTimer);
+        }
+
+        @Override
+        public void add(Map<String, Object> row) {
+            RawLoaderTransformed doc = new RawLoaderTransformed();
+            doc.setMetadataId(metadataId);
+            doc.setRow(position++);
+            doc.setRunId(runId);
+            doc.setTransformedRow(row);
+            bulk.add(doc);
+        }
+
+        @Override
+        public long flush() {
+            return bulk.finish();
+        }
+
+        @Override
+        public void close() {
+            bulk.close();
+        }
+    }
+
+    // rows are encoded into chunks on the calling thread; each chunk is one insert, one in flight
+    private final class ChunkWriter implements TransformedWriter {
+
+        private final String metadataId;
+        private final String runId;
+        private final int chunkRows;
+        private final BulkRowWriter<TransformedChunk> bulk;
+        private final long firstRow;
+        private List<Map<String, Object>> pending;
+        private long position;
+
+        ChunkWriter(String metadataId, String runId, long firstRow) {
+            this.metadataId = metadataId;
+            this.runId = runId;
+            this.firstRow = firstRow;
+            this.position = firstRow;
+            this.chunkRows = Math.max(1, settings.getChunkRows());
+            this.pending = new ArrayList<>(chunkRows);
+            RawLoaderProperties.Writer oneChunkPerInsert = new RawLoaderProperties.Writer();
+            oneChunkPerInsert.setInitialBatchSize(1);
+            oneChunkPerInsert.setMinBatchSize(1);
+            oneChunkPerInsert.setMaxBatchSize(1);
+            this.bulk = new BulkRowWriter<>(mongoTemplate, ioExecutor, TransformedChunk.class, oneChunkPerInsert, insertTimer);
+        }
+
+        @Override
+        public void add(Map<String, Object> row) {
+            pending.add(row);
+            if (pending.size() >= chunkRows) encode();
+        }
+
+        // a partial chunk is written as is; the next chunk starts after it
+        @Override
+        public long flush() {
+            if (!pending.isEmpty()) encode();
+            bulk.finish();
+            return position - firstRow;
+        }
+
+        @Override
+        public void close() {
+            bulk.close();
+        }
+
+        private void encode() {
+            TransformedChunk chunk = ChunkCodec.encode(metadataId, position, pending);
+            chunk.setRunId(runId);
+            bulk.add(chunk);
+            position += pending.size();
+            pending = new ArrayList<>(chunkRows);
+        }
+    }
+}
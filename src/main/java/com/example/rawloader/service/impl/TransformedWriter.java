@@ -0,0 +1,32 @@
+package com.example.rawloader.service.impl;
+
+import java.util.Map;
+
+/**
+ * Sink for transformed rows that hides the storage layout. Rows are keyed by their position,
+ * so writing a position again replaces the row. Not thread-safe.
+ */
+interface TransformedWriter extends AutoCloseable {
+
+    void add(Map<String, Object> row);
+
+    /**
+     * Writes what is buffered and waits for it; more rows may be added afterwards.
+     * @return number of rows written by this writer so far
+     */
+    long flush();
+
+    /**
+     * Writes what is buffered and waits for it.
+     * @return number of rows written
+     */
+    default long finish() {
+        return flush();
+    }
+
+    /**
+     * Waits for pending writes without throwing.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,101 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.model.ValidationErrorGroup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bounded view of the errors of one validation pass. Every error is counted, grouped by
+ * (column, message) and handed to the spill consumer in batches; only the first
+ * {@code maxErrors} are kept. File level errors (row == null) are always kept.
+ * Not thread-safe: fed in row order from the reader thread.
+ */
+final class ValidationErrorCollector {
+
+    private final int maxErrors;
+    private final long abortAfter;
+    private final int samplesPerGroup;
+    private final int spillBatchSize;
+    private final Consumer<List<ValidationError>> spill;
+
+    private final List<ValidationError> kept = new ArrayList<>();
+    // messages are fixed per column and type, so the number of groups is bounded by the config
+    private final Map<String, ValidationErrorGroup> groups = new LinkedHashMap<>();
+    private List<ValidationError> pending;
+    private long count;
+    private boolean aborted;
+
+    ValidationErrorCollector(RawLoaderProperties.Validation settings, Consumer<List<ValidationError>> spill) {
+        this.maxErrors = Math.max(1, settings.getMaxErrors());
+        this.abortAfter = settings.getAbortAfterErrors();
+        this.samplesPerGroup = Math.max(0, settings.getSamplesPerGroup());
+        this.spillBatchSize = Math.max(1, settings.getSpillBatchSize());
+        this.spill = spill;
+        this.pending = spill == null ? null : new ArrayList<>();
+    }
+
+    void add(ValidationError error) {
+        count++;
+        if (kept.size() < maxErrors || error.getRow() == null) kept.add(error);
+        group(error);
+        if (pending != null) {
+            pending.add(error);
+            if (pending.size() >= spillBatchSize) flush();
+        }
+    }
+
+    /**
+     * @return false once the abort limit is reached: the caller should stop reading
+     */
+    boolean addAll(List<ValidationError> errors) {
+        for (ValidationError error : errors) add(error);
+        if (abortAfter > 0 && count >= abortAfter) aborted = true;
+        return !aborted;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    long count() {
+        return count;
+    }
+
+    List<ValidationError> kept() {
+        return kept;
+    }
+
+    List<ValidationErrorGroup> groups() {
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Hands the errors not yet spilled to the spill consumer.
+     */
+    void flush() {
+        if (pending == null || pending.isEmpty()) return;
+        List<ValidationError> batch = pending;
+        pending = new ArrayList<>();
+        spill.accept(batch);
+    }
+
+    private void group(ValidationError error) {
+        String key = error.getField() + '\u0000' + error.getMessage();
+        ValidationErrorGroup group = groups.computeIfAbsent(key,
+                k -> new ValidationErrorGroup(error.getField(), error.getMessage(), 0, new ArrayList<>()));
+        group.setCount(group.getCount() + 1);
+        if (error.getRow() != null && group.getSampleRows().size() < samplesPerGroup) {
+            group.getSampleRows().add(error.getRow());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.dto.ValidationErrorPageDTO;
+import com.example.rawloader.model.StoredValidationError;
+import com.example.rawloader.model.ValidationError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * The full error list of an upload, one document per error in raw_loader_validation_errors,
+ * numbered in row order so it can be read back in keyset pages.
+ */
+@Component
+@Slf4j
+public class ValidationErrorStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService ioExecutor;
+    private final RawLoaderProperties properties;
+    private final IngestMetrics metrics;
+
+    public ValidationErrorStore(MongoTemplate mongoTemplate,
+                                @Qualifier("ioExecutor") ExecutorService ioExecutor,
+                                RawLoaderProperties properties,
+                                IngestMetrics metrics) {
+        this.mongoTemplate = mongoTemplate;
+        this.ioExecutor = ioExecutor;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    Spill open(String metadataId) {
+        return new Spill(metadataId);
+    }
+
+    void discard(String metadataId) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("metadataId").is(metadataId)), StoredValidationError.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not discard validation errors for {}: {}", metadataId, e.getMessage());
+        }
+    }
+
+    ValidationErrorPageDTO page(String metadataId, long totalErrors, Long after, Integer size) {
+        RawLoaderProperties.Read settings = properties.getRead();
+        int limit = Math.max(1, Math.min(size == null ? settings.getDefaultPageSize() : size, settings.getMaxPageSize()));
+        Criteria criteria = Criteria.where("metadataId").is(metadataId);
+        if (after != null) criteria = criteria.and("seq").gt(after);
+
+        // one extra error tells whether another page exists
+        List<StoredValidationError> stored = mongoTemplate.find(Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "seq")).limit(limit + 1), StoredValidationError.class);
+        boolean more = stored.size() > limit;
+        if (more) stored = stored.subList(0, limit);
+
+        List<ValidationError> items = new ArrayList<>(stored.size());
+        for (StoredValidationError e : stored) items.add(new ValidationError(e.getRow(), e.getField(), e.getMessage()));
+        return new ValidationErrorPageDTO(items, totalErrors, more ? stored.get(limit - 1).getSeq() : null);
+    }
+
+    /**
+     * Writes error batches as they are found; one bulk insert in flight, like transformed rows.
+     */
+    final class Spill implements Consumer<List<ValidationError>>, AutoCloseable {
+
+        private final String metadataId;
+        private final BulkRowWriter<StoredValidationError> bulk;
+        private long seq;
+
+        private Spill(String metadataId) {
+            this.metadataId = metadataId;
+            this.bulk = new BulkRowWriter<>(mongoTemplate, ioExecutor, StoredValidationError.class,
+                    properties.getWriter(), metrics.timer(IngestMetrics.Stage.MONGO_INSERT));
+        }
+
+        @Override
+        public void accept(List<ValidationError> errors) {
+            for (ValidationError error : errors) {
+                StoredValidationError doc = new StoredValidationError();
+                doc.setMetadataId(metadataId);
+                doc.setSeq(seq++);
+                doc.setRow(error.getRow());
+                doc.setField(error.getField());
+                doc.setMessage(error.getMessage());
+                bulk.add(doc);
+            }
+        }
+
+        long finish() {
+            return bulk.finish();
+        }
+
+        @Override
+        public void close() {
+            bulk.close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.rawloader.util;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exception-free date parser over a primary pattern and its fallbacks.
+ * Numeric patterns (d, dd, M, MM, yy, yyyy and literal separators) are compiled into a tiny
+ * matcher that reads digits straight from the {@link CharSequence} and resolves like
+ * DateTimeFormatter's SMART mode. Anything else goes through DateTimeFormatter#parseUnresolved,
+ * which reports failures through a ParsePosition instead of throwing.
+ * Results are epoch days; {@link #INVALID} marks a failure.
+ */
+public final class DateParser {
+
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private final Matcher[] matchers;
+    // index of the pattern that matched last; racy on purpose, it only changes the try order in isValid
+    private int lastHit;
+
+    public DateParser(String primary, List<String> fallbacks) {
+        Set<String> patterns = new LinkedHashSet<>();
+        if (primary != null) patterns.add(primary);
+        patterns.addAll(fallbacks);
+        List<Matcher> compiled = new ArrayList<>();
+        for (String p : patterns) {
+            Matcher m = compile(p);
+            if (m != null) compiled.add(m);
+        }
+        this.matchers = compiled.toArray(new Matcher[0]);
+    }
+
+    /**
+     * True when any pattern matches. Tries the pattern that matched last first, so columns
+     * written in a fallback format skip the failing patterns.
+     */
+    public boolean isValid(CharSequence text) {
+        int start = trimStart(text);
+        int end = trimEnd(text, start);
+        if (start == end || matchers.length == 0) return false;
+        int hint = lastHit;
+        if (matchers[hint].parse(text, start, end) != INVALID) return true;
+        for (int i = 0; i < matchers.length; i++) {
+            if (i != hint && matchers[i].parse(text, start, end) != INVALID) {
+                lastHit = i;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses with the patterns in priority order, so ambiguous values (01/02 vs 02/01)
+     * always resolve the same way.
+     * @return epoch day, or {@link #INVALID}
+     */
+    public long parseEpochDay(CharSequence text) {
+        int start = trimStart(text);
+        int end = trimEnd(text, start);
+        if (start == end) return INVALID;
+        for (Matcher m : matchers) {
+            long day = m.parse(text, start, end);
+            if (day != INVALID) return day;
+        }
+        return INVALID;
+    }
+
+    public static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int trimStart(CharSequence s) {
+        int i = 0;
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static int trimEnd(CharSequence s, int start) {
+        int end = s.length();
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) end--;
+        return end;
+    }
+
+    private interface Matcher {
+        long parse(CharSequence s, int start, int end);
+    }
+
+    private static Matcher compile(String pattern) {
+        NumericMatcher numeric = NumericMatcher.compile(pattern);
+        if (numeric != null) return numeric;
+        try {
+            return new FormatterMatcher(DateTimeFormatter.ofPattern(pattern));
+        } catch (IllegalArgumentException e) {
+            return null; // invalid pattern in config, it can never match
+        }
+    }
+
+    /**
+     * Digit fields and single-character literals, e.g. dd/MM/yyyy or yyyy-MM-dd.
+     */
+    private static final class NumericMatcher implements Matcher {
+
+        private static final byte LITERAL = 0, DAY = 1, MONTH = 2, YEAR = 3, YEAR2 = 4;
+
+        private final byte[] kinds;
+        private final byte[] minWidth;
+        private final byte[] maxWidth;
+        private final char[] literals;
+
+        private NumericMatcher(byte[] kinds, byte[] minWidth, byte[] maxWidth, char[] literals) {
+            this.kinds = kinds;
+            this.minWidth = minWidth;
+            this.maxWidth = maxWidth;
+            this.literals = literals;
+        }
+
+        static NumericMatcher compile(String pattern) {
+            int n = pattern.length();
+            byte[] kinds = new byte[n], min = new byte[n], max = new byte[n];
+            char[] lits = new char[n];
+            int count = 0;
+            boolean day = false, month = false, year = false;
+            boolean previousVariable = false;
+
+            for (int i = 0; i < n; ) {
+                char c = pattern.charAt(i);
+                int run = 1;
+                while (i + run < n && pattern.charAt(i + run) == c) run++;
+
+                if (c == 'd' || c == 'M' || c == 'y') {
+                    if (previousVariable) return null; // adjacent value parsing is left to DateTimeFormatter
+                    byte kind;
+                    if (c == 'd' && run <= 2) { kind = DAY; day = true; }
+                    else if (c == 'M' && run <= 2) { kind = MONTH; month = true; }
+                    else if (c == 'y' && run == 2) { kind = YEAR2; year = true; }
+                    else if (c == 'y' && run == 4) { kind = YEAR; year = true; }
+                    else return null;
+                    kinds[count] = kind;
+                    min[count] = (byte) (run == 1 ? 1 : run);
+                    max[count] = (byte) (run == 1 ? 2 : run);
+                    previousVariable = run == 1;
+                    count++;
+                    i += run;
+                } else if (Character.isLetter(c) || c == '\'' || c == '[' || c == ']' || c == '{' || c == '}' || c == '#') {
+                    return null;
+                } else {
+                    kinds[count] = LITERAL;
+                    lits[count] = c;
+                    previousVariable = false;
+                    count++;
+                    i++;
+                }
+            }
+            if (!day || !month || !year) return null;
+            return new NumericMatcher(
+                    Arrays.copyOf(kinds, count), Arrays.copyOf(min, count),
+                    Arrays.copyOf(max, count), Arrays.copyOf(lits, count));
+        }
+
+        @Override
+        public long parse(CharSequence s, int start, int end) {
+            int pos = start;
+            int d = 0, m = 0, y = 0;
+            for (int t = 0; t < kinds.length; t++) {
+                if (kinds[t] == LITERAL) {
+                    if (pos >= end || s.charAt(pos) != literals[t]) return INVALID;
+                    pos++;
+                    continue;
+                }
+                int value = 0, width = 0, maxW = maxWidth[t];
+                while (pos < end && width < maxW) {
+                    char c = s.charAt(pos);
+                    if (c < '0' || c > '9') break;
+                    value = value * 10 + (c - '0');
+                    pos++;
+                    width++;
+                }
+                if (width < minWidth[t]) return INVALID;
+                switch (kinds[t]) {
+                    case DAY -> d = value;
+                    case MONTH -> m = value;
+                    case YEAR -> y = value;
+                    default -> y = 2000 + value;
+                }
+            }
+            if (pos != end) return INVALID;
+            if (y < 1 || m < 1 || m > 12 || d < 1 || d > 31) return INVALID;
+            // SMART resolution clamps 29-31 to the last day of the month
+            return epochDay(y, m, Math.min(d, lengthOfMonth(y, m)));
+        }
+
+        private static int lengthOfMonth(int y, int m) {
+            return switch (m) {
+                case 2 -> (y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) ? 29 : 28;
+                case 4, 6, 9, 11 -> 30;
+                default -> 31;
+            };
+        }
+    }
+
+    /**
+     * Patterns the numeric matcher does not cover (month names etc.).
+     */
+    private static final class FormatterMatcher implements Matcher {
+
+        private final DateTimeFormatter formatter;
+
+        FormatterMatcher(DateTimeFormatter formatter) {
+            this.formatter = formatter;
+        }
+
+        @Override
+        public long parse(CharSequence s, int start, int end) {
+            CharSequence text = s.subSequence(start, end);
+            ParsePosition pos = new ParsePosition(0);
+            TemporalAccessor unresolved = formatter.parseUnresolved(text, pos);
+            if (unresolved == null || pos.getErrorIndex() >= 0 || pos.getIndex() != text.length()) return INVALID;
+            try {
+                // syntax matched; only field resolution can still fail here
+                return formatter.parse(text, LocalDate::from).toEpochDay();
+            } catch (DateTimeException e) {
+                return INVALID;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.rawloader.util;
+
+/**
+ * Exception-free decimal parser working directly on a {@link CharSequence}.
+ * Accepts an optional sign, digits with thousands separators (commas are ignored, as before),
+ * an optional fraction and exponent, with surrounding whitespace. Returns {@link Double#NaN}
+ * instead of throwing, so dirty columns cost a few character checks rather than a stack trace.
+ */
+public final class DecimalParser {
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private DecimalParser() {
+    }
+
+    public static boolean isDecimal(CharSequence text) {
+        return !Double.isNaN(parse(text));
+    }
+
+    /**
+     * @return the parsed value, or NaN when the text is not a decimal number
+     */
+    public static double parse(CharSequence text) {
+        int end = text.length();
+        int i = 0;
+        while (i < end && Character.isWhitespace(text.charAt(i))) i++;
+        while (end > i && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (i == end) return Double.NaN;
+
+        int start = i;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;   // digits accumulated in mantissa
+        int dropped = 0;       // integer digits that did not fit in the mantissa
+        int scale = 0;         // fraction digits accumulated in mantissa
+        boolean digits = false;
+        boolean exact = true;
+
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (significant < 18) {
+                    if (mantissa != 0 || c != '0') significant++;
+                    mantissa = mantissa * 10 + (c - '0');
+                } else {
+                    dropped++;
+                    exact = false;
+                }
+            } else if (c != ',') {
+                break;
+            }
+        }
+        if (i < end && text.charAt(i) == '.') {
+            for (i++; i < end; i++) {
+                c = text.charAt(i);
+                if (c < '0' || c > '9') break;
+                digits = true;
+                if (significant < 18) {
+                    if (mantissa != 0 || c != '0') significant++;
+                    mantissa = mantissa * 10 + (c - '0');
+                    scale++;
+                } else if (c != '0') {
+                    exact = false;
+                }
+            }
+        }
+        if (!digits) return Double.NaN;
+
+        int exponent = 0;
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean expNegative = false;
+            if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                expNegative = text.charAt(i) == '-';
+                i++;
+            }
+            int expStart = i;
+            for (; i < end; i++) {
+                c = text.charAt(i);
+                if (c < '0' || c > '9') break;
+                if (exponent < 100_000) exponent = exponent * 10 + (c - '0');
+            }
+            if (i == expStart) return Double.NaN;
+            if (expNegative) exponent = -exponent;
+        }
+        if (i != end) return Double.NaN;
+
+        int power = exponent + dropped - scale;
+        if (exact && mantissa < MAX_EXACT_MANTISSA && Math.abs(power) <= 22) {
+            // both operands are exact doubles, so one multiplication/division rounds correctly
+            double v = power >= 0 ? mantissa * POW10[power] : mantissa / POW10[-power];
+            return negative ? -v : v;
+        }
+        return slowPath(text, start, end);
+    }
+
+    private static double slowPath(CharSequence text, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != ',') sb.append(c);
+        }
+        // syntax was already checked above, so this does not throw
+        return Double.parseDouble(sb.toString());
+    }
+}
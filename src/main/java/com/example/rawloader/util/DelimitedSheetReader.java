@@ -0,0 +1,173 @@
+package com.example.rawloader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RFC 4180 style CSV/TSV reader. Files are parsed straight from memory-mapped windows,
+ * streams through a fixed read buffer, so nothing is spooled or decoded up front.
+ * Handles quoted fields, doubled quotes, embedded delimiters/newlines, CRLF/LF/CR and a UTF-8 BOM.
+ * Zero-length lines are skipped but still count towards row numbers.
+ */
+public class DelimitedSheetReader implements SheetReader {
+
+    private static final long MAP_WINDOW = 1L << 28; // 256 MB per mapping
+    private static final int STREAM_BUFFER = 64 * 1024;
+
+    private final byte delimiter;
+
+    public DelimitedSheetReader(char delimiter) {
+        this.delimiter = (byte) delimiter;
+    }
+
+    @Override
+    public void read(Path file, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Tokenizer tokenizer = new Tokenizer(delimiter, handler);
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos));
+                if (!tokenizer.feed(window)) return;
+            }
+            tokenizer.finish();
+        }
+    }
+
+    /**
+     * Delimited text needs no random access, so streams are tokenized as they arrive.
+     */
+    @Override
+    public void read(InputStream in, RowHandler handler) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(delimiter, handler);
+        byte[] buf = new byte[STREAM_BUFFER];
+        ByteBuffer view = ByteBuffer.wrap(buf);
+        int n;
+        while ((n = in.readNBytes(buf, 0, buf.length)) > 0) {
+            view.clear().limit(n);
+            if (!tokenizer.feed(view)) return;
+        }
+        tokenizer.finish();
+    }
+
+    /**
+     * Byte level state machine; delimiters, quotes and line breaks are ASCII so UTF-8 needs no decoding
+     * until a field is complete.
+     */
+    private static final class Tokenizer {
+
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3;
+        private static final int AFTER_CR = 4;
+
+        private static final byte QUOTE = '"';
+        private static final byte CR = '\r';
+        private static final byte LF = '\n';
+
+        private final byte delimiter;
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private byte[] field = new byte[256];
+        private int fieldLen;
+        private int state = FIELD_START;
+        private boolean recordStarted;
+        private boolean first = true;
+        private int rowNum;
+        private boolean stopped;
+
+        Tokenizer(byte delimiter, RowHandler handler) {
+            this.delimiter = delimiter;
+            this.handler = handler;
+        }
+
+        boolean feed(ByteBuffer buf) {
+            if (first) {
+                first = false;
+                skipBom(buf);
+            }
+            while (buf.hasRemaining() && !stopped) {
+                byte b = buf.get();
+                switch (state) {
+                    case FIELD_START -> fieldStart(b);
+                    case UNQUOTED -> {
+                        if (b == delimiter) endField();
+                        else if (b == LF) endRecord();
+                        else if (b == CR) { endRecord(); state = AFTER_CR; }
+                        else append(b);
+                    }
+                    case QUOTED -> {
+                        if (b == QUOTE) state = QUOTE_IN_QUOTED;
+                        else append(b);
+                    }
+                    case QUOTE_IN_QUOTED -> {
+                        if (b == QUOTE) { append(b); state = QUOTED; }
+                        else if (b == delimiter) endField();
+                        else if (b == LF) endRecord();
+                        else if (b == CR) { endRecord(); state = AFTER_CR; }
+                        else { append(b); state = UNQUOTED; } // lenient: text after a closing quote
+                    }
+                    case AFTER_CR -> {
+                        state = FIELD_START;
+                        if (b != LF) fieldStart(b);
+                    }
+                    default -> throw new IllegalStateException("Unknown tokenizer state " + state);
+                }
+            }
+            return !stopped;
+        }
+
+        void finish() {
+            if (stopped) return;
+            if (recordStarted) endRecord(); // last line without trailing newline (or unterminated quote)
+        }
+
+        private void fieldStart(byte b) {
+            if (b == QUOTE) { recordStarted = true; state = QUOTED; }
+            else if (b == delimiter) { recordStarted = true; endField(); }
+            else if (b == LF) endRecord();
+            else if (b == CR) { endRecord(); state = AFTER_CR; }
+            else { append(b); state = UNQUOTED; }
+        }
+
+        private void append(byte b) {
+            if (fieldLen == field.length) field = Arrays.copyOf(field, fieldLen * 2);
+            field[fieldLen++] = b;
+            recordStarted = true;
+        }
+
+        private void endField() {
+            cells.add(fieldLen == 0 ? "" : new String(field, 0, fieldLen, StandardCharsets.UTF_8));
+            fieldLen = 0;
+            state = FIELD_START;
+        }
+
+        private void endRecord() {
+            if (recordStarted) {
+                endField();
+                SheetRow row = SheetRow.ofText(rowNum, cells.toArray(new String[0]));
+                cells.clear();
+                recordStarted = false;
+                if (!handler.onRow(row)) stopped = true;
+            }
+            rowNum++;
+            state = FIELD_START;
+        }
+
+        private static void skipBom(ByteBuffer buf) {
+            int p = buf.position();
+            if (buf.remaining() >= 3 && buf.get(p) == (byte) 0xEF && buf.get(p + 1) == (byte) 0xBB && buf.get(p + 2) == (byte) 0xBF) {
+                buf.position(p + 3);
+            }
+        }
+    }
+}
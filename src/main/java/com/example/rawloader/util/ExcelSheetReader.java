@@ -0,0 +1,23 @@
+package com.example.rawloader.util;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Event based Excel reader: XSSF SAX parsing for .xlsx and the HSSF event API for legacy .xls.
+ * Unlike WorkbookFactory it never builds the workbook object model.
+ */
+public class ExcelSheetReader implements SheetReader {
+
+    @Override
+    public void read(Path file, RowHandler handler) throws IOException {
+        FileMagic magic = FileMagic.valueOf(file.toFile());
+        switch (magic) {
+            case OOXML -> XlsxSheetParser.parse(file.toFile(), handler);
+            case OLE2 -> XlsSheetParser.parse(file.toFile(), handler);
+            default -> throw new IOException("Unsupported file format: " + magic);
+        }
+    }
+}
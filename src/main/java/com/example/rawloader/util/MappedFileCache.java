@@ -0,0 +1,416 @@
+package com.example.rawloader.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-local copy of immutable files on disk, bounded by total size and evicted least recently used.
+ * Files are filled while their bytes pass by once (on store, or on the first read of a miss) and
+ * served from a read-only memory mapping, so a hit costs neither a remote read nor a read syscall.
+ * <p>
+ * Keys must identify immutable content (GridFS ids): an entry is never updated in place.
+ * An evicted file may still be mapped by a reader; its pages stay valid until that reader is done.
+ * The cache only knows about this node: a file removed elsewhere stays cached until it is invalidated
+ * here or evicted, so callers confirm now and then ({@link #isConfirmedWithin}) that a hit still exists.
+ */
+public final class MappedFileCache implements AutoCloseable {
+
+    // marks a directory the cache created or took over; only its own files in there are ever deleted.
+    // The process using the directory holds a lock on it
+    static final String MARKER = ".rawloader-file-cache";
+
+    private final Path directory;
+    private final FileChannel markerChannel;
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access ordered, guarded by itself
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param directory    one per process; the cache files left in it are removed on start (the cache does not
+     *                     survive restarts), other files are kept. A directory holding anything else that was
+     *                     not a cache directory before, or one another process is using, is refused rather than taken over.
+     * @param maxBytes     total size of the cached files
+     * @param maxFileBytes larger files are not cached (a single mapping is limited to 2 GB)
+     */
+    public MappedFileCache(Path directory, long maxBytes, long maxFileBytes) {
+        this.directory = directory;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxFileBytes = Math.min(Math.min(Math.max(0, maxFileBytes), this.maxBytes), Integer.MAX_VALUE);
+        try {
+            Files.createDirectories(directory);
+            Path marker = directory.resolve(MARKER);
+            List<Path> leftovers;
+            try (var files = Files.list(directory)) {
+                leftovers = files.filter(p -> !p.equals(marker)).toList();
+            }
+            if (!Files.exists(marker) && !leftovers.stream().allMatch(MappedFileCache::isCacheFile)) {
+                throw new IllegalStateException("File cache directory " + directory
+                        + " holds files the cache did not create; configure a directory of its own");
+            }
+            markerChannel = FileChannel.open(marker, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (!lock(markerChannel)) {
+                markerChannel.close();
+                throw new IllegalStateException("File cache directory " + directory
+                        + " is used by another process; configure a directory of its own");
+            }
+            leftovers.stream().filter(MappedFileCache::isCacheFile).forEach(MappedFileCache::deleteQuietly);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot use file cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * @return the cached file, or null on a miss
+     */
+    public MappedInputStream open(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new MappedInputStream(entry.buffer.duplicate());
+    }
+
+    /**
+     * Copies the bytes read from {@code in} into a new cache file. The file is published by
+     * {@link Fill#commit} once the key is known and the stream was read to the end, and discarded otherwise.
+     */
+    public Fill fill(InputStream in) {
+        return new Fill(in);
+    }
+
+    /**
+     * Read-through for a miss: caches {@code in} under {@code key} if the caller reads it to the end.
+     */
+    public InputStream readThrough(String key, InputStream in) {
+        Fill fill = fill(in);
+        return new FilterInputStream(fill) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (fill.complete()) fill.commit(key);
+                } finally {
+                    fill.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Whether the entry was filled, or confirmed by {@link #confirm}, less than {@code maxAge} ago.
+     */
+    public boolean isConfirmedWithin(String key, Duration maxAge) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        return entry != null && System.nanoTime() - entry.confirmedAt.get() < maxAge.toNanos();
+    }
+
+    /**
+     * Records that the cached file was found to still exist at its source.
+     */
+    public void confirm(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) entry.confirmedAt.set(System.nanoTime());
+    }
+
+    public void invalidate(String key) {
+        Entry removed;
+        synchronized (entries) {
+            removed = entries.remove(key);
+            if (removed != null) totalBytes -= removed.size;
+        }
+        if (removed != null) deleteQuietly(removed.path);
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long totalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Files not cached because they were too large or could not be written.
+     */
+    public long skippedCount() {
+        return skipped.sum();
+    }
+
+    private void publish(String key, Path part, long size) throws IOException {
+        Path target = directory.resolve(fileName(key));
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        Entry entry = new Entry(target, buffer, size, new AtomicLong(System.nanoTime()));
+        List<Path> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) totalBytes -= previous.size;
+            totalBytes += size;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> e = eldest.next();
+                if (e.getValue() == entry) continue;
+                eldest.remove();
+                totalBytes -= e.getValue().size;
+                evicted.add(e.getValue().path);
+                evictions.increment();
+            }
+        }
+        evicted.forEach(MappedFileCache::deleteQuietly);
+    }
+
+    /**
+     * Releases the directory to the next process; the cached files stay until it starts.
+     */
+    @Override
+    public void close() {
+        try {
+            markerChannel.close(); // releases the lock
+        } catch (IOException ignored) {
+            // the lock goes with the process
+        }
+    }
+
+    // false when another process, or another cache in this one, holds the directory
+    private static boolean lock(FileChannel channel) throws IOException {
+        try {
+            FileLock lock = channel.tryLock();
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    // keys are ids; anything else is kept out of the path
+    private static String fileName(String key) {
+        return key.replaceAll("[^A-Za-z0-9_-]", "_") + ".bin";
+    }
+
+    // a cached file or the part file of a fill
+    private static boolean isCacheFile(Path path) {
+        String name = path.getFileName().toString();
+        return Files.isRegularFile(path) && (name.endsWith(".bin") || name.startsWith("fill-") && name.endsWith(".part"));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // a mapped file that cannot be deleted yet is removed on the next start
+        }
+    }
+
+    private record Entry(Path path, MappedByteBuffer buffer, long size, AtomicLong confirmedAt) {
+    }
+
+    /**
+     * A stream that copies what is read through it into a part file; writing stops (and the file is
+     * dropped) as soon as the file turns out to be too large or the disk write fails.
+     */
+    public final class Fill extends FilterInputStream {
+
+        private Path part;
+        private OutputStream out;
+        private long written;
+        private boolean eof;
+        private boolean committed;
+
+        private Fill(InputStream in) {
+            super(in);
+            if (maxFileBytes == 0) return;
+            try {
+                part = Files.createTempFile(directory, "fill-", ".part");
+                out = Files.newOutputStream(part);
+            } catch (IOException e) {
+                skipped.increment();
+                drop();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) eof = true;
+            else copy(new byte[]{(byte) b}, 0, 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) eof = true;
+            else copy(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            drop(); // skipped bytes are not copied
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        boolean complete() {
+            return eof && out != null;
+        }
+
+        /**
+         * Publishes the copy under {@code key}; a no-op unless the stream was read to the end.
+         */
+        public void commit(String key) {
+            if (!complete() || committed) return;
+            committed = true;
+            try {
+                out.close();
+                out = null;
+                publish(key, part, written);
+                part = null;
+            } catch (IOException e) {
+                skipped.increment();
+                drop();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (part != null) drop();
+            }
+        }
+
+        private void copy(byte[] b, int off, int n) {
+            if (out == null) return;
+            if (written + n > maxFileBytes) {
+                skipped.increment();
+                drop();
+                return;
+            }
+            try {
+                out.write(b, off, n);
+                written += n;
+            } catch (IOException e) {
+                skipped.increment();
+                drop();
+            }
+        }
+
+        private void drop() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // the part file is deleted below
+                }
+                out = null;
+            }
+            if (part != null) {
+                deleteQuietly(part);
+                part = null;
+            }
+        }
+    }
+
+    /**
+     * A cached file; skipping moves the position in the mapping.
+     */
+    public static final class MappedInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public long length() {
+            return buffer.capacity();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.rawloader.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded LRU cache for remote lookups that rarely change.
+ * <ul>
+ *   <li>younger than {@code refreshAfter}: served from the cache</li>
+ *   <li>younger than {@code expireAfter}: served stale while one background reload runs</li>
+ *   <li>missing or older: loaded on the caller's thread</li>
+ * </ul>
+ * Concurrent loads of the same key share one loader call. Failed loads are not cached,
+ * and a failed background reload keeps the stale value until it expires.
+ */
+public final class RefreshingCache<K, V> {
+
+    private final Function<K, V> loader;
+    private final Executor refreshExecutor;
+    private final long refreshAfterNanos;
+    private final long expireAfterNanos;
+    private final LongSupplier clock;
+    private final Map<K, Entry<V>> entries;   // access ordered, guarded by itself
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    // bumped by every invalidation so a load that started before it does not put an old value back
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RefreshingCache(Function<K, V> loader, int maxEntries, Duration refreshAfter, Duration expireAfter,
+                           Executor refreshExecutor) {
+        this(loader, maxEntries, refreshAfter, expireAfter, refreshExecutor, System::nanoTime);
+    }
+
+    RefreshingCache(Function<K, V> loader, int maxEntries, Duration refreshAfter, Duration expireAfter,
+                    Executor refreshExecutor, LongSupplier clock) {
+        this.loader = loader;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.expireAfterNanos = Math.max(refreshAfterNanos, expireAfter.toNanos());
+        this.clock = clock;
+        int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= capacity) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public V get(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            long age = clock.getAsLong() - entry.loadedAt;
+            if (age < refreshAfterNanos) {
+                hits.increment();
+                return entry.value;
+            }
+            if (age < expireAfterNanos) {
+                staleHits.increment();
+                refreshInBackground(key);
+                return entry.value;
+            }
+        }
+        misses.increment();
+        return join(load(key));
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateIf(Predicate<? super K> matches) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.keySet().removeIf(matches);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long loadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void refreshInBackground(K key) {
+        if (loading.containsKey(key)) return;
+        try {
+            refreshExecutor.execute(() -> load(key));
+        } catch (RejectedExecutionException ignored) {
+            // shutting down: the stale value is still served
+        }
+    }
+
+    /**
+     * Runs the loader unless a load of the same key is already in progress, in which case its future is returned.
+     */
+    private CompletableFuture<V> load(K key) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, mine);
+        if (running != null) return running;
+
+        long gen = generation.get();
+        try {
+            V value = loader.apply(key);
+            if (value != null) {
+                synchronized (entries) {
+                    if (generation.get() == gen) entries.put(key, new Entry<>(value, clock.getAsLong()));
+                }
+            }
+            mine.complete(value);
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            mine.completeExceptionally(e);
+        } finally {
+            loading.remove(key, mine);
+        }
+        return mine;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
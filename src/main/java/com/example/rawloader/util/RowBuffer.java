@@ -0,0 +1,62 @@
+package com.example.rawloader.util;
+
+import java.util.Arrays;
+
+/**
+ * Reusable cell accumulator for the event based parsers.
+ * Grows with the widest row seen; every emitted {@link SheetRow} gets exact-size copies.
+ */
+final class RowBuffer {
+
+    private String[] values = new String[16];
+    private SheetRow.Kind[] kinds = new SheetRow.Kind[16];
+    private double[] numbers = new double[16];
+    private int width;
+    private boolean numeric;
+    private int rowNum = -1;
+
+    void start(int rowNum) {
+        Arrays.fill(values, 0, width, null);
+        Arrays.fill(kinds, 0, width, null);
+        if (numeric) Arrays.fill(numbers, 0, width, 0d);
+        this.width = 0;
+        this.numeric = false;
+        this.rowNum = rowNum;
+    }
+
+    int rowNum() {
+        return rowNum;
+    }
+
+    boolean active() {
+        return rowNum >= 0;
+    }
+
+    void set(int col, String value, SheetRow.Kind kind) {
+        ensure(col);
+        values[col] = value;
+        kinds[col] = kind;
+        if (col >= width) width = col + 1;
+    }
+
+    void setNumber(int col, String display, SheetRow.Kind kind, double number) {
+        set(col, display, kind);
+        numbers[col] = number;
+        numeric = true;
+    }
+
+    SheetRow build() {
+        return new SheetRow(rowNum,
+                Arrays.copyOf(values, width),
+                Arrays.copyOf(kinds, width),
+                numeric ? Arrays.copyOf(numbers, width) : null);
+    }
+
+    private void ensure(int col) {
+        if (col < values.length) return;
+        int cap = Math.max(values.length * 2, col + 1);
+        values = Arrays.copyOf(values, cap);
+        kinds = Arrays.copyOf(kinds, cap);
+        numbers = Arrays.copyOf(numbers, cap);
+    }
+}
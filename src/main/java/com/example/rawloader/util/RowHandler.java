@@ -0,0 +1,13 @@
+package com.example.rawloader.util;
+
+/**
+ * Callback for rows emitted by a {@link SheetReader}.
+ */
+@FunctionalInterface
+public interface RowHandler {
+
+    /**
+     * @return false to stop reading (remaining rows are skipped)
+     */
+    boolean onRow(SheetRow row);
+}
@@ -0,0 +1,51 @@
+package com.example.rawloader.util;
+
+import java.util.Locale;
+
+/**
+ * Supported upload formats and the reader used for each.
+ */
+public enum SheetFormat {
+
+    EXCEL(new ExcelSheetReader()),
+    CSV(new DelimitedSheetReader(',')),
+    TSV(new DelimitedSheetReader('\t'));
+
+    private final SheetReader reader;
+
+    SheetFormat(SheetReader reader) {
+        this.reader = reader;
+    }
+
+    public SheetReader reader() {
+        return reader;
+    }
+
+    /**
+     * Picks the format from the file extension, then the content type; Excel is the default.
+     * Extension wins because browsers often send CSV as application/vnd.ms-excel.
+     */
+    public static SheetFormat detect(String fileName, String contentType) {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) return TSV;
+        if (name.endsWith(".xlsx") || name.endsWith(".xls") || name.endsWith(".xlsm")) return EXCEL;
+
+        String ct = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (ct.startsWith("text/csv") || ct.startsWith("application/csv")) return CSV;
+        if (ct.startsWith("text/tab-separated-values")) return TSV;
+        return EXCEL;
+    }
+
+    /**
+     * Resolves a stored format name, falling back to detection for records that predate it.
+     */
+    public static SheetFormat of(String name, String fileName) {
+        if (name != null) {
+            for (SheetFormat f : values()) {
+                if (f.name().equalsIgnoreCase(name)) return f;
+            }
+        }
+        return detect(fileName, null);
+    }
+}
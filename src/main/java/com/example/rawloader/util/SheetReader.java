@@ -0,0 +1,30 @@
+package com.example.rawloader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Streams the rows of the first sheet of a file to a {@link RowHandler}.
+ * Heap use depends on the row width, not on the file size.
+ */
+public interface SheetReader {
+
+    void read(Path file, RowHandler handler) throws IOException;
+
+    /**
+     * Spools the stream to a temp file and reads it from there
+     * (zip based formats need random access to the central directory).
+     */
+    default void read(InputStream in, RowHandler handler) throws IOException {
+        Path tmp = Files.createTempFile("rawloader-", ".upload");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            read(tmp, handler);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.rawloader.util;
+
+/**
+ * One physical row produced by a {@link SheetReader}.
+ * Holds the display value of every cell (as Excel would show it) plus the
+ * cell kind and the raw numeric value, so consumers never need the POI user model.
+ */
+public final class SheetRow {
+
+    public enum Kind { BLANK, STRING, NUMERIC, DATE, BOOLEAN, ERROR }
+
+    private static final Kind[] NO_KINDS = new Kind[0];
+
+    private final int rowNum;          // 0-based, same as POI
+    private final String[] values;
+    private final Kind[] kinds;
+    private final double[] numbers;
+
+    public SheetRow(int rowNum, String[] values, Kind[] kinds, double[] numbers) {
+        this.rowNum = rowNum;
+        this.values = values;
+        this.kinds = kinds;
+        this.numbers = numbers;
+    }
+
+    /**
+     * Row of plain text cells (used by delimited readers and tests).
+     */
+    public static SheetRow ofText(int rowNum, String[] values) {
+        Kind[] kinds = NO_KINDS;
+        if (values.length > 0) {
+            kinds = new Kind[values.length];
+            for (int i = 0; i < values.length; i++) {
+                kinds[i] = (values[i] == null || values[i].isEmpty()) ? Kind.BLANK : Kind.STRING;
+            }
+        }
+        return new SheetRow(rowNum, values, kinds, null);
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Display value of the cell, never null ("" for missing cells).
+     */
+    public String value(int col) {
+        if (col < 0 || col >= values.length) return "";
+        String v = values[col];
+        return v == null ? "" : v;
+    }
+
+    public Kind kind(int col) {
+        if (col < 0 || col >= kinds.length) return Kind.BLANK;
+        Kind k = kinds[col];
+        return k == null ? Kind.BLANK : k;
+    }
+
+    /**
+     * Raw numeric value for NUMERIC / DATE cells.
+     * DATE cells hold the Excel serial date in the 1900 date system, whatever the workbook uses.
+     */
+    public double number(int col) {
+        if (numbers == null || col < 0 || col >= numbers.length) return 0d;
+        return numbers[col];
+    }
+
+    public boolean isCellEmpty(int col) {
+        Kind k = kind(col);
+        if (k == Kind.BLANK) return true;
+        if (k == Kind.STRING) return value(col).isBlank();
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < values.length; i++) {
+            if (!isCellEmpty(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.rawloader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a source stream exactly once and hands the same bytes to several consumers.
+ * A pump task copies fixed-size chunks into one bounded queue per branch, so memory
+ * is capped at branches * queueDepth * chunkSize and the slowest consumer sets the pace.
+ * Closing a branch detaches it; the remaining branches keep receiving data. A branch may be
+ * closed from another thread to abort its consumer, whose next read then fails.
+ */
+public final class StreamFanOut {
+
+    private static final byte[] END = new byte[0];
+
+    private StreamFanOut() {
+    }
+
+    /**
+     * Starts pumping {@code source} on {@code executor}. The source is closed by the pump.
+     */
+    public static InputStream[] split(InputStream source, int branches, int chunkSize, int queueDepth, Executor executor) {
+        Branch[] out = new Branch[branches];
+        for (int i = 0; i < branches; i++) out[i] = new Branch(queueDepth);
+        executor.execute(() -> pump(source, out, chunkSize));
+        return out;
+    }
+
+    private static void pump(InputStream source, Branch[] branches, int chunkSize) {
+        IOException failure = null;
+        try (source) {
+            while (true) {
+                byte[] buf = new byte[chunkSize];
+                int n = source.readNBytes(buf, 0, chunkSize);
+                if (n == 0) break;
+                byte[] chunk = n == chunkSize ? buf : Arrays.copyOf(buf, n);
+
+                boolean anyOpen = false;
+                for (Branch b : branches) anyOpen |= b.offer(chunk);
+                if (!anyOpen || n < chunkSize) break;
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new InterruptedIOException("Upload stream interrupted");
+        }
+        for (Branch b : branches) b.finish(failure);
+    }
+
+    private static final class Branch extends InputStream {
+
+        private final BlockingQueue<byte[]> queue;
+        private volatile boolean closed;
+        private volatile IOException failure;
+        private byte[] current;
+        private int pos;
+        private boolean eof;
+
+        Branch(int depth) {
+            this.queue = new ArrayBlockingQueue<>(depth);
+        }
+
+        /**
+         * @return false when the consumer has gone away
+         */
+        boolean offer(byte[] chunk) throws InterruptedException {
+            while (!closed) {
+                if (queue.offer(chunk, 50, TimeUnit.MILLISECONDS)) return true;
+            }
+            return false;
+        }
+
+        void finish(IOException error) {
+            this.failure = error;
+            try {
+                offer(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) return -1;
+            return current[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, current.length - pos);
+            System.arraycopy(current, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.length - pos;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            // wake a consumer blocked in take(); the pump may slip one chunk in after a clear
+            do {
+                queue.clear();
+            } while (!queue.offer(END));
+        }
+
+        private boolean fill() throws IOException {
+            if (closed) throw new IOException("Stream closed");
+            if (eof) return false;
+            if (current != null && pos < current.length) return true;
+            try {
+                current = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for upload data");
+            }
+            pos = 0;
+            if (closed) throw new IOException("Stream closed");
+            if (current == END) {
+                eof = true;
+                if (failure != null) throw new IOException("Upload stream failed: " + failure.getMessage(), failure);
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.rawloader.util;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * HSSF event parser for the first worksheet of a legacy .xls workbook.
+ */
+final class XlsSheetParser {
+
+    private static final short CONTINUE = 0;
+    private static final short STOP = 1;
+    private static final int DATE_1904_OFFSET = 1462; // days between the 1900 and 1904 epochs
+
+    private XlsSheetParser() {
+    }
+
+    static void parse(File file, RowHandler handler) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            Listener listener = new Listener(handler);
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+            if (!listener.sawSheet) throw new IOException("No sheet found in workbook");
+        } catch (HSSFUserException e) {
+            throw new IOException("Unable to read xls: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class Listener extends AbortableHSSFListener {
+
+        private final RowHandler handler;
+        private final FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(null);
+        private final DataFormatter formatter = new DataFormatter();
+        private final RowBuffer row = new RowBuffer();
+
+        private SSTRecord sst;
+        private boolean date1904;
+        private int sheetIndex = -1;
+        private boolean inFirstSheet;
+        private boolean sawSheet;
+        private FormulaRecord pendingStringFormula;
+
+        Listener(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public short abortableProcessRecord(org.apache.poi.hssf.record.Record record) {
+            formats.processRecordInternally(record);
+
+            if (record instanceof BOFRecord bof) {
+                if (bof.getType() == BOFRecord.TYPE_WORKSHEET) {
+                    sheetIndex++;
+                    inFirstSheet = sheetIndex == 0;
+                    sawSheet = true;
+                }
+                return CONTINUE;
+            }
+            if (record instanceof DateWindow1904Record dw) {
+                date1904 = dw.getWindowing() == 1;
+                return CONTINUE;
+            }
+            if (record instanceof SSTRecord s) {
+                sst = s;
+                return CONTINUE;
+            }
+            if (!inFirstSheet) return CONTINUE;
+
+            if (record instanceof EOFRecord) {
+                // end of the first worksheet: flush the last row, nothing else is needed
+                if (row.active()) handler.onRow(row.build());
+                return STOP;
+            }
+            if (record instanceof StringRecord s) {
+                if (pendingStringFormula == null) return CONTINUE;
+                FormulaRecord f = pendingStringFormula;
+                pendingStringFormula = null;
+                return cell(f, s.getString(), SheetRow.Kind.STRING);
+            }
+            if (record instanceof LabelSSTRecord l) {
+                return cell(l, sst.getString(l.getSSTIndex()).getString(), SheetRow.Kind.STRING);
+            }
+            if (record instanceof LabelRecord l) {
+                return cell(l, l.getValue(), SheetRow.Kind.STRING);
+            }
+            if (record instanceof NumberRecord n) {
+                return number(n, n.getValue());
+            }
+            if (record instanceof BoolErrRecord b) {
+                return b.isBoolean()
+                        ? cell(b, b.getBooleanValue() ? "TRUE" : "FALSE", SheetRow.Kind.BOOLEAN)
+                        : cell(b, FormulaError.forInt(b.getErrorValue()).getString(), SheetRow.Kind.ERROR);
+            }
+            if (record instanceof FormulaRecord f) {
+                if (f.hasCachedResultString()) {
+                    pendingStringFormula = f; // value follows in a StringRecord
+                    return CONTINUE;
+                }
+                int type = f.getCachedResultType();
+                if (type == CellType.BOOLEAN.getCode()) {
+                    return cell(f, f.getCachedBooleanValue() ? "TRUE" : "FALSE", SheetRow.Kind.BOOLEAN);
+                }
+                if (type == CellType.ERROR.getCode()) {
+                    return cell(f, FormulaError.forInt(f.getCachedErrorValue()).getString(), SheetRow.Kind.ERROR);
+                }
+                return number(f, f.getValue());
+            }
+            return CONTINUE;
+        }
+
+        private short number(CellValueRecordInterface rec, double value) {
+            int fmtIndex = formats.getFormatIndex(rec);
+            String fmt = formats.getFormatString(rec);
+            if (fmt == null) fmt = "General";
+            boolean date = DateUtil.isADateFormat(fmtIndex, fmt) && DateUtil.isValidExcelDate(value);
+            String display = formatter.formatRawCellContents(value, fmtIndex, fmt, date1904);
+            if (!advanceTo(rec.getRow())) return STOP;
+            if (date) {
+                row.setNumber(rec.getColumn(), display, SheetRow.Kind.DATE, date1904 ? value + DATE_1904_OFFSET : value);
+            } else {
+                row.setNumber(rec.getColumn(), display, SheetRow.Kind.NUMERIC, value);
+            }
+            return CONTINUE;
+        }
+
+        private short cell(CellValueRecordInterface rec, String value, SheetRow.Kind kind) {
+            if (!advanceTo(rec.getRow())) return STOP;
+            row.set(rec.getColumn(), value, kind);
+            return CONTINUE;
+        }
+
+        /**
+         * Cell records arrive row by row; a new row number means the previous row is complete.
+         */
+        private boolean advanceTo(int rowNum) {
+            if (row.active() && row.rowNum() == rowNum) return true;
+            if (row.active() && !handler.onRow(row.build())) return false;
+            row.start(rowNum);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.rawloader.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * SAX parser for the first worksheet of an .xlsx package.
+ */
+final class XlsxSheetParser {
+
+    private static final int DATE_1904_OFFSET = 1462; // days between the 1900 and 1904 epochs
+
+    private XlsxSheetParser() {
+    }
+
+    static void parse(File file, RowHandler handler) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Unable to open xlsx: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            boolean date1904 = isDate1904(reader);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) throw new IOException("No sheet found in workbook");
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xml = XMLHelper.newXMLReader();
+                xml.setContentHandler(new SheetHandler(strings, styles, date1904, handler));
+                xml.parse(new InputSource(sheet));
+            } catch (StopReading stop) {
+                // handler asked for no more rows
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Unable to read xlsx: " + e.getMessage(), e);
+        } finally {
+            pkg.revert(); // read-only package, nothing to save
+        }
+    }
+
+    private static boolean isDate1904(XSSFReader reader) throws IOException, OpenXML4JException,
+            SAXException, ParserConfigurationException {
+        boolean[] result = new boolean[1];
+        try (InputStream wb = reader.getWorkbookData()) {
+            XMLReader xml = XMLHelper.newXMLReader();
+            xml.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attrs) throws SAXException {
+                    if ("workbookPr".equals(localName)) {
+                        String v = attrs.getValue("date1904");
+                        result[0] = "1".equals(v) || "true".equalsIgnoreCase(v);
+                        throw new StopReading();
+                    }
+                    if ("sheets".equals(localName)) throw new StopReading();
+                }
+            });
+            xml.parse(new InputSource(wb));
+        } catch (StopReading stop) {
+            // found what we need
+        }
+        return result[0];
+    }
+
+    /**
+     * Thrown from the SAX callbacks to end parsing early; SAX parsers rethrow SAXExceptions as-is.
+     */
+    private static final class StopReading extends SAXException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final SharedStrings strings;
+        private final StylesTable styles;
+        private final boolean date1904;
+        private final RowHandler handler;
+        private final DataFormatter formatter = new DataFormatter();
+        private final RowBuffer row = new RowBuffer();
+        private final StringBuilder text = new StringBuilder(64);
+
+        private boolean collecting;
+        private boolean inInlineString;
+        private boolean hasValue;
+        private int col = -1;
+        private String cellType;
+        private int styleIndex;
+
+        SheetHandler(SharedStrings strings, StylesTable styles, boolean date1904, RowHandler handler) {
+            this.strings = strings;
+            this.styles = styles;
+            this.date1904 = date1904;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attrs.getValue("r");
+                    row.start(r != null ? Integer.parseInt(r) - 1 : row.rowNum() + 1);
+                    col = -1;
+                }
+                case "c" -> {
+                    String ref = attrs.getValue("r");
+                    col = ref != null ? columnIndex(ref) : col + 1;
+                    cellType = attrs.getValue("t");
+                    String s = attrs.getValue("s");
+                    styleIndex = s != null ? Integer.parseInt(s) : 0;
+                    hasValue = false;
+                    text.setLength(0);
+                }
+                case "v" -> {
+                    collecting = true;
+                    text.setLength(0);
+                }
+                case "is" -> {
+                    inInlineString = true;
+                    text.setLength(0);
+                }
+                case "t" -> {
+                    if (inInlineString) collecting = true;
+                }
+                default -> {
+                    // f, rPh, extLst ... are not needed
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v" -> {
+                    collecting = false;
+                    hasValue = true;
+                }
+                case "t" -> {
+                    if (inInlineString) collecting = false;
+                }
+                case "is" -> {
+                    inInlineString = false;
+                    hasValue = true;
+                }
+                case "c" -> {
+                    if (hasValue) storeCell();
+                }
+                case "row" -> {
+                    if (!handler.onRow(row.build())) throw new StopReading();
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void storeCell() {
+            String raw = text.toString();
+            String type = cellType == null ? "n" : cellType;
+            switch (type) {
+                case "s" -> row.set(col, strings.getItemAt(Integer.parseInt(raw.trim())).getString(), SheetRow.Kind.STRING);
+                case "inlineStr", "str", "d" -> row.set(col, raw, SheetRow.Kind.STRING);
+                case "b" -> row.set(col, "0".equals(raw.trim()) ? "FALSE" : "TRUE", SheetRow.Kind.BOOLEAN);
+                case "e" -> row.set(col, raw, SheetRow.Kind.ERROR);
+                default -> storeNumber(raw);
+            }
+        }
+
+        private void storeNumber(String raw) {
+            if (raw.isEmpty()) return;
+            double d;
+            try {
+                d = Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                row.set(col, raw, SheetRow.Kind.STRING);
+                return;
+            }
+            int fmtIndex = 0;
+            String fmt = null;
+            XSSFCellStyle style = styles != null && styleIndex < styles.getNumCellStyles() ? styles.getStyleAt(styleIndex) : null;
+            if (style != null) {
+                fmtIndex = style.getDataFormat();
+                fmt = style.getDataFormatString();
+            }
+            if (fmt == null) fmt = BuiltinFormats.getBuiltinFormat(fmtIndex);
+            if (fmt == null) fmt = "General";
+
+            boolean date = DateUtil.isADateFormat(fmtIndex, fmt) && DateUtil.isValidExcelDate(d);
+            String display = formatter.formatRawCellContents(d, fmtIndex, fmt, date1904);
+            if (date) {
+                row.setNumber(col, display, SheetRow.Kind.DATE, date1904 ? d + DATE_1904_OFFSET : d);
+            } else {
+                row.setNumber(col, display, SheetRow.Kind.NUMERIC, d);
+            }
+        }
+
+        private static int columnIndex(String ref) {
+            int c = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char ch = ref.charAt(i);
+                if (ch < 'A' || ch > 'Z') break;
+                c = c * 26 + (ch - 'A' + 1);
+            }
+            return c - 1;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.rawloader;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * A throwaway mongod for tests that need real queries, updates and unique indexes; one per test class.
+ */
+public final class EmbeddedMongo implements AutoCloseable {
+
+	private final TransitionWalker.ReachedState<RunningMongodProcess> process;
+	private final String uri;
+	private final MongoClient client;
+
+	private EmbeddedMongo(TransitionWalker.ReachedState<RunningMongodProcess> process) {
+		this.process = process;
+		this.uri = "mongodb://" + process.current().getServerAddress();
+		this.client = MongoClients.create(uri);
+	}
+
+	public static EmbeddedMongo start() {
+		return new EmbeddedMongo(Mongod.instance().start(Version.Main.PRODUCTION));
+	}
+
+	/**
+	 * Connection string of the server, without a database.
+	 */
+	public String uri() {
+		return uri;
+	}
+
+	/**
+	 * A template on an empty database.
+	 */
+	public MongoTemplate template(String database) {
+		MongoTemplate template = new MongoTemplate(client, database);
+		template.getDb().drop();
+		return template;
+	}
+
+	@Override
+	public void close() {
+		client.close();
+		process.close();
+	}
+}
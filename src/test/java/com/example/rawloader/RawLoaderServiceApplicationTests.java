@@ -1,11 +1,26 @@
 package com.example.rawloader;
 
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
 class RawLoaderServiceApplicationTests {
 
+	private static final EmbeddedMongo mongo = EmbeddedMongo.start();
+
+	@DynamicPropertySource
+	static void mongo(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.mongodb.uri", () -> mongo.uri() + "/rawloader");
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,144 @@
+package com.example.rawloader.controller;
+
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.service.api.FileStorageService;
+import com.example.rawloader.service.api.RawLoaderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RawLoaderControllerTests {
+
+	private static final String CONTENT = "abcdefghij";
+	private static final String ETAG = "\"hash\"";
+
+	private final RawLoaderService rawLoaderService = mock(RawLoaderService.class);
+	private final FileStorageService fileStorageService = mock(FileStorageService.class);
+	private MockMvc mvc;
+	private TrackingStream stored;
+
+	@BeforeEach
+	void setUp() {
+		mvc = MockMvcBuilders.standaloneSetup(new RawLoaderController(rawLoaderService, fileStorageService)).build();
+		RawLoaderMetadata metadata = RawLoaderMetadata.newUpload("rows.csv", 1L, "cfg", "CSV");
+		metadata.setGridFsId("file-1");
+		metadata.setContentHash("hash");
+		metadata.setUploadDate(Instant.parse("2024-05-01T10:00:00Z"));
+		when(rawLoaderService.getMetadata("u1")).thenReturn(metadata);
+		stored = new TrackingStream();
+		when(fileStorageService.open("file-1")).thenReturn(new FileStorageService.StoredFile(CONTENT.length(), stored));
+	}
+
+	// the streamed body is written on an async dispatch
+	private MvcResult download(MockHttpServletRequestBuilder builder) throws Exception {
+		MvcResult started = mvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+		return mvc.perform(asyncDispatch(started)).andReturn();
+	}
+
+	@Test
+	void sendsTheWholeFileAndReadsItToTheEnd() throws Exception {
+		MvcResult result = download(get("/api/raw-loader/download/u1"));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentAsString(UTF_8)).isEqualTo(CONTENT);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(result.getResponse().getContentLengthLong()).isEqualTo(CONTENT.length());
+		// reading the end is what lets a read-through cache keep the file
+		assertThat(stored.sawEnd).isTrue();
+		assertThat(stored.closed).isTrue();
+	}
+
+	@Test
+	void sendsTheRequestedRange() throws Exception {
+		MvcResult result = download(get("/api/raw-loader/download/u1").header(HttpHeaders.RANGE, "bytes=2-5"));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(206);
+		assertThat(result.getResponse().getContentAsString(UTF_8)).isEqualTo("cdef");
+		assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+		assertThat(result.getResponse().getContentLengthLong()).isEqualTo(4);
+	}
+
+	@Test
+	void answersNotModifiedForAMatchingETag() throws Exception {
+		mvc.perform(get("/api/raw-loader/download/u1").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, ETAG))
+				.andExpect(content().bytes(new byte[0]));
+
+		verify(fileStorageService, never()).open("file-1");
+	}
+
+	@Test
+	void answersRangeNotSatisfiableBeyondTheEnd() throws Exception {
+		mvc.perform(get("/api/raw-loader/download/u1").header(HttpHeaders.RANGE, "bytes=20-30"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+
+		assertThat(stored.closed).isTrue();
+	}
+
+	@Test
+	void sendsTheWholeFileWhenIfRangeDoesNotMatch() throws Exception {
+		MvcResult result = download(get("/api/raw-loader/download/u1")
+				.header(HttpHeaders.RANGE, "bytes=2-5")
+				.header(HttpHeaders.IF_RANGE, "\"other\""));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentAsString(UTF_8)).isEqualTo(CONTENT);
+		assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+	}
+
+	private static final class TrackingStream extends FilterInputStream {
+
+		// set on the thread that streams the body
+		private volatile boolean sawEnd;
+		private volatile boolean closed;
+
+		TrackingStream() {
+			super(new ByteArrayInputStream(CONTENT.getBytes(UTF_8)));
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b < 0) sawEnd = true;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n < 0) sawEnd = true;
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+}
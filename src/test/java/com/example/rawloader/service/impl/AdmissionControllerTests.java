@@ -0,0 +1,139 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.exception.TooManyRequestsException;
+import com.example.rawloader.util.SheetFormat;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTests {
+
+	private static AdmissionController controller(long budget, int maxQueued, Duration maxWait) {
+		RawLoaderProperties.Admission settings = new RawLoaderProperties.Admission();
+		settings.setBudgetBytes(budget);
+		settings.setMaxQueued(maxQueued);
+		settings.setMaxWait(maxWait);
+		settings.setBaseBytes(10);
+		settings.setExcelHeapFactor(8);
+		settings.setDelimitedHeapFactor(1);
+		return new AdmissionController(settings, 0);
+	}
+
+	private static void awaitQueued(AdmissionController admission, int depth) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (admission.queueDepth() < depth && System.nanoTime() < deadline) Thread.sleep(5);
+		assertThat(admission.queueDepth()).isEqualTo(depth);
+	}
+
+	@Test
+	void estimatesByFormat() {
+		AdmissionController admission = controller(1_000, 1, Duration.ofSeconds(1));
+
+		assertThat(admission.estimate(SheetFormat.EXCEL, 100L)).isEqualTo(810);
+		assertThat(admission.estimate(SheetFormat.CSV, 100L)).isEqualTo(110);
+	}
+
+	@Test
+	void rejectsWhenQueueFullOrWaitExpires() {
+		AdmissionController admission = controller(100, 0, Duration.ofSeconds(1));
+		AdmissionController.Permit held = admission.admit(1L, 100);
+
+		assertThatThrownBy(() -> admission.admit(2L, 10)).isInstanceOf(TooManyRequestsException.class);
+		assertThat(admission.rejectedQueueFullCount()).isEqualTo(1);
+
+		AdmissionController patient = controller(100, 5, Duration.ofMillis(20));
+		AdmissionController.Permit full = patient.admit(1L, 100);
+		assertThatThrownBy(() -> patient.admit(2L, 10)).isInstanceOf(TooManyRequestsException.class);
+		assertThat(patient.rejectedTimeoutCount()).isEqualTo(1);
+		assertThat(patient.queueDepth()).isZero();
+
+		held.close();
+		full.close();
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void servesPartnersRoundRobin() throws InterruptedException {
+		AdmissionController admission = controller(100, 10, Duration.ofSeconds(5));
+		AdmissionController.Permit blocker = admission.admit(0L, 100);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		// partner 1 queues three requests before partner 2 queues one
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		String[] arrivals = {"1a", "1b", "1c", "2a"};
+		for (String name : arrivals) {
+			Thread t = Thread.ofVirtual().start(() -> {
+				try (AdmissionController.Permit permit = admission.admit(Long.valueOf(name.substring(0, 1)), 100)) {
+					order.add(name);
+				}
+			});
+			threads.add(t);
+			awaitQueued(admission, threads.size());
+		}
+
+		blocker.close();
+		for (Thread t : threads) t.join(5_000);
+
+		assertThat(order).containsExactly("1a", "2a", "1b", "1c");
+		assertThat(admission.reservedBytes()).isZero();
+		assertThat(admission.delayedCount()).isEqualTo(4);
+	}
+
+	@Test
+	void tryAdmitNeverQueues() {
+		AdmissionController admission = controller(100, 5, Duration.ofSeconds(1));
+		AdmissionController.Permit first = admission.tryAdmit(1L, 60);
+
+		assertThat(first).isNotNull();
+		assertThat(admission.tryAdmit(2L, 60)).isNull();
+		assertThat(admission.queueDepth()).isZero();
+
+		first.close();
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void backgroundWorkWaitsPastMaxWaitAndTheQueueLimit() throws Exception {
+		AdmissionController admission = controller(100, 0, Duration.ofMillis(20));
+		AdmissionController.Permit blocker = admission.admit(0L, 100);
+
+		CompletableFuture<AdmissionController.Permit> job = CompletableFuture.supplyAsync(
+				() -> admission.await(1L, 50, () -> false));
+		awaitQueued(admission, 1);
+		Thread.sleep(100);
+		assertThat(job).isNotDone();
+		// HTTP callers are still limited by maxQueued, background waiters do not use it up
+		assertThatThrownBy(() -> admission.admit(2L, 10)).isInstanceOf(TooManyRequestsException.class);
+
+		blocker.close();
+		job.get(5, TimeUnit.SECONDS).close();
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void backgroundWaitEndsWhenCancelled() throws Exception {
+		AdmissionController admission = controller(100, 5, Duration.ofMillis(20));
+		AdmissionController.Permit blocker = admission.admit(0L, 100);
+		AtomicBoolean cancelled = new AtomicBoolean();
+
+		CompletableFuture<AdmissionController.Permit> job = CompletableFuture.supplyAsync(
+				() -> admission.await(1L, 50, cancelled::get));
+		awaitQueued(admission, 1);
+		cancelled.set(true);
+
+		assertThatThrownBy(() -> job.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+		assertThat(admission.queueDepth()).isZero();
+		blocker.close();
+		assertThat(admission.reservedBytes()).isZero();
+	}
+}
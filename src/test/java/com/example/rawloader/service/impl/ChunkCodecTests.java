@@ -0,0 +1,51 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.model.ChunkColumn;
+import com.example.rawloader.model.TransformedChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkCodecTests {
+
+	@Test
+	void roundTripsEveryEncoding() {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for (int i = 0; i < 70_000; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("amount", i % 7 == 0 ? null : i * 0.5);
+			row.put("status", i % 5 == 0 ? null : "S" + (i % 1000));
+			row.put("ref", "R" + i);
+			row.put("mixed", i % 2 == 0 ? "x" : Boolean.TRUE);
+			row.put("empty", null);
+			rows.add(row);
+		}
+
+		TransformedChunk chunk = ChunkCodec.encode("m1", 10_000, rows);
+
+		assertThat(chunk.getKeys()).containsExactly("amount", "status", "ref", "mixed", "empty");
+		assertThat(chunk.getColumns()).extracting(ChunkColumn::getEncoding).containsExactly(
+				ChunkColumn.Encoding.NUMBER, ChunkColumn.Encoding.DICTIONARY, ChunkColumn.Encoding.DICTIONARY,
+				ChunkColumn.Encoding.VALUES, ChunkColumn.Encoding.NUMBER);
+		assertThat(chunk.getColumns().get(1).getCodeWidth()).isEqualTo(2);
+		assertThat(chunk.getColumns().get(2).getCodeWidth()).isEqualTo(4);
+		assertThat(chunk.getFirstRow()).isEqualTo(10_000);
+		assertThat(ChunkCodec.decode(chunk)).isEqualTo(rows);
+	}
+
+	@Test
+	void missingKeysReadBackAsNull() {
+		Map<String, Object> first = new LinkedHashMap<>(Map.of("a", "1"));
+		Map<String, Object> second = new LinkedHashMap<>(Map.of("b", 2.0));
+
+		List<Map<String, Object>> decoded = ChunkCodec.decode(ChunkCodec.encode("m1", 0, List.of(first, second)));
+
+		assertThat(decoded.get(0)).containsEntry("a", "1").containsEntry("b", null);
+		assertThat(decoded.get(1)).containsEntry("a", null).containsEntry("b", 2.0);
+	}
+}
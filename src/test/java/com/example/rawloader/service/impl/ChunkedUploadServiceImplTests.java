@@ -0,0 +1,292 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.EmbeddedMongo;
+import com.example.rawloader.config.MongoIndexInitializer;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.dto.UploadResponseDTO;
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.UploadSession;
+import com.example.rawloader.repository.RawLoaderMetadataRepository;
+import com.example.rawloader.service.api.RawLoaderService;
+import com.example.rawloader.service.api.UploadContent;
+import com.example.rawloader.util.ContentHash;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.model.Filters;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceImplTests {
+
+	private static EmbeddedMongo mongo;
+
+	private final RawLoaderProperties properties = new RawLoaderProperties();
+	private final RawLoaderService rawLoaderService = mock(RawLoaderService.class);
+	// what each ingest that reached the end of the file read
+	private final List<String> ingested = new CopyOnWriteArrayList<>();
+	private final CountDownLatch firstRead = new CountDownLatch(1);
+	private final AdmissionController admission = new AdmissionController(properties.getAdmission(), 1L << 30);
+	private MongoTemplate mongoTemplate;
+	private ExecutorService ioExecutor;
+
+	@BeforeAll
+	static void startMongo() {
+		mongo = EmbeddedMongo.start();
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mongo.template("chunked_uploads");
+		new MongoIndexInitializer(mongoTemplate, Runnable::run).createIndexes();
+		ioExecutor = Executors.newCachedThreadPool();
+		properties.getUpload().setChunkSize(4);
+		properties.getUpload().setChunkPollInterval(Duration.ofMillis(10));
+		properties.getUpload().setCompleteWait(Duration.ofSeconds(5));
+		when(rawLoaderService.ingest(any(), any(), anyBoolean()))
+				.thenAnswer(call -> ingest(call.getArgument(0), call.getArgument(1)));
+	}
+
+	@AfterEach
+	void tearDown() {
+		ioExecutor.shutdownNow();
+	}
+
+	private ChunkedUploadServiceImpl service() {
+		return new ChunkedUploadServiceImpl(mongoTemplate, rawLoaderService, mock(RawLoaderMetadataRepository.class),
+				ioExecutor, properties, admission);
+	}
+
+	// reads the file the way validation does and keeps it, like the ingest of a valid file
+	private UploadResponseDTO ingest(RawLoaderMetadata metadata, UploadContent content) {
+		try {
+			content.start();
+			ByteArrayOutputStream read = new ByteArrayOutputStream();
+			try (InputStream in = content.validationStream()) {
+				byte[] buffer = new byte[16];
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					read.write(buffer, 0, n);
+					firstRead.countDown();
+				}
+			}
+			metadata.setGridFsId(content.stored().join());
+			ingested.add(read.toString(UTF_8));
+			return new UploadResponseDTO(metadata.getId(), true, List.of(), "File validated and stored successfully",
+					metadata.getFileName(), "VALIDATED");
+		} catch (IOException | RuntimeException e) {
+			content.abort();
+			return new UploadResponseDTO(null, false, List.of(), "Internal error", metadata.getFileName(), "FAILED");
+		}
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(UTF_8);
+	}
+
+	private String stored(UploadSession session) throws IOException {
+		try (InputStream in = GridFSBuckets.create(mongoTemplate.getDb()).openDownloadStream(new ObjectId(session.getGridFsId()))) {
+			return new String(in.readAllBytes(), UTF_8);
+		}
+	}
+
+	private UploadSession await(ChunkedUploadServiceImpl service, String sessionId, Predicate<UploadSession> condition)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		UploadSession session = service.getSession(sessionId);
+		while (!condition.test(session) && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			session = service.getSession(sessionId);
+		}
+		assertThat(condition.test(session)).as("session %s reached the expected state", sessionId).isTrue();
+		return session;
+	}
+
+	private static void assertConflict(Runnable call, String reason) {
+		assertThatThrownBy(call::run)
+				.isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+					assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+					assertThat(e.getReason()).contains(reason);
+				});
+	}
+
+	@Test
+	void assemblesChunksSentOutOfOrder() throws Exception {
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+
+		service.putChunk(session.getId(), 2, bytes("ij"), null);
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+		service.putChunk(session.getId(), 1, bytes("efgh"), ContentHash.sha256(bytes("efgh")));
+		UploadResponseDTO response = service.complete(session.getId());
+
+		assertThat(response.isValid()).isTrue();
+		assertThat(ingested).containsExactly("abcdefghij");
+		assertThat(stored(session)).isEqualTo("abcdefghij");
+		UploadSession completed = service.getSession(session.getId());
+		assertThat(completed.getStatus()).isEqualTo(ChunkedUploadServiceImpl.VALIDATED);
+		assertThat(completed.getLength()).isEqualTo(10);
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void resentChunkReplacesTheCopyValidationAlreadyRead() throws Exception {
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+
+		service.putChunk(session.getId(), 0, bytes("xxxx"), null);
+		assertThat(firstRead.await(10, TimeUnit.SECONDS)).isTrue();
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+		service.putChunk(session.getId(), 1, bytes("ef"), null);
+		service.complete(session.getId());
+
+		// the first read saw the replaced bytes, so validation ran again over the sealed file
+		await(service, session.getId(), s -> ChunkedUploadServiceImpl.VALIDATED.equals(s.getStatus()));
+		assertThat(ingested).containsExactly("abcdef");
+		assertThat(stored(session)).isEqualTo("abcdef");
+	}
+
+	@Test
+	void rejectsChunksOnceComplete() throws Exception {
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+		service.putChunk(session.getId(), 1, bytes("ef"), null);
+		service.complete(session.getId());
+
+		assertConflict(() -> service.putChunk(session.getId(), 1, bytes("zz"), null), "validated");
+
+		// a PUT that passed the status check just before complete sealed the chunks
+		mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId())),
+				new Update().set("status", ChunkedUploadServiceImpl.OPEN), UploadSession.class);
+		assertConflict(() -> service.putChunk(session.getId(), 1, bytes("zz"), null), "sealed");
+		assertThat(stored(session)).isEqualTo("abcdef");
+	}
+
+	@Test
+	void expiresSessionsWithoutNewChunks() {
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+
+		mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(session.getId())),
+				new Update().set("expiresAt", Instant.now().minusSeconds(1)), UploadSession.class);
+		service.sweep();
+
+		assertThat(service.getSession(session.getId()).getStatus()).isEqualTo(ChunkedUploadServiceImpl.EXPIRED);
+		assertThat(mongoTemplate.getCollection(GridFsChunkStream.CHUNKS)
+				.countDocuments(Filters.eq("files_id", new ObjectId(session.getGridFsId())))).isZero();
+		assertConflict(() -> service.putChunk(session.getId(), 1, bytes("ef"), null), "expired");
+		assertConflict(() -> service.complete(session.getId()), "expired");
+	}
+
+	@Test
+	void idleValidationStopsAndCompleteStartsItAgain() throws Exception {
+		properties.getUpload().setCompleteWait(Duration.ofMillis(200));
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+
+		await(service, session.getId(), s -> !s.isIngesting());
+		assertThat(admission.reservedBytes()).isZero();
+
+		service.putChunk(session.getId(), 1, bytes("ef"), null);
+		service.complete(session.getId());
+
+		await(service, session.getId(), s -> ChunkedUploadServiceImpl.VALIDATED.equals(s.getStatus()));
+		assertThat(ingested).containsExactly("abcdef");
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void validationStartsOnCompleteWhenInitiateHadNoRoom() throws Exception {
+		AdmissionController.Permit busy = admission.admit(9L, admission.budgetBytes());
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+
+		assertThat(session.isIngesting()).isFalse();
+		assertThat(admission.reservedBytes()).isEqualTo(admission.budgetBytes());
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+		service.putChunk(session.getId(), 1, bytes("ef"), null);
+		busy.close();
+
+		assertThat(service.complete(session.getId()).isValid()).isTrue();
+		assertThat(ingested).containsExactly("abcdef");
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void completeTakesOverAnIngestWhoseNodeStopped() throws Exception {
+		properties.getUpload().setCompleteWait(Duration.ofMillis(200));
+		AdmissionController.Permit busy = admission.admit(9L, admission.budgetBytes());
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+		busy.close();
+		service.putChunk(session.getId(), 0, bytes("abcd"), null);
+		service.putChunk(session.getId(), 1, bytes("ef"), null);
+
+		// another node claimed the ingest and is still renewing it
+		Query upload = Query.query(Criteria.where("_id").is(session.getId()));
+		mongoTemplate.updateFirst(upload, new Update().set("ingesting", true).set("ingestHeartbeatAt", Instant.now()),
+				UploadSession.class);
+		assertThat(service.complete(session.getId()).getValidationStatus()).isEqualTo("VALIDATING");
+		assertThat(ingested).isEmpty();
+
+		// that node stopped renewing: the next complete validates here
+		mongoTemplate.updateFirst(upload, new Update().set("ingestHeartbeatAt", Instant.now().minus(Duration.ofMinutes(5))),
+				UploadSession.class);
+		service.complete(session.getId());
+
+		await(service, session.getId(), s -> ChunkedUploadServiceImpl.VALIDATED.equals(s.getStatus()));
+		assertThat(ingested).containsExactly("abcdef");
+		assertThat(admission.reservedBytes()).isZero();
+	}
+
+	@Test
+	void heartbeatRenewsTheIngestsOfThisNode() throws Exception {
+		ChunkedUploadServiceImpl service = service();
+		UploadSession session = service.initiate(1L, "cfg", "rows.csv", "text/csv", false);
+		Instant started = service.getSession(session.getId()).getIngestHeartbeatAt();
+		assertThat(started).isNotNull();
+
+		Thread.sleep(20);
+		service.heartbeat();
+
+		assertThat(service.getSession(session.getId()).getIngestHeartbeatAt()).isAfter(started);
+		service.abort(session.getId());
+	}
+}
@@ -0,0 +1,220 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.EmbeddedMongo;
+import com.example.rawloader.client.ConfigClient;
+import com.example.rawloader.config.IngestMetrics;
+import com.example.rawloader.config.MongoIndexInitializer;
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.LoaderColumnDTO;
+import com.example.rawloader.model.LoaderConfigDTO;
+import com.example.rawloader.model.RawLoaderMetadata;
+import com.example.rawloader.model.RawLoaderTransformed;
+import com.example.rawloader.model.TransformCheckpoint;
+import com.example.rawloader.repository.RawLoaderMetadataRepository;
+import com.example.rawloader.service.api.FileStorageService;
+import com.example.rawloader.service.api.TransformProgress;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransformServiceImplTests {
+
+	private static final int ROWS = 50;
+	private static EmbeddedMongo mongo;
+
+	private final RawLoaderProperties properties = new RawLoaderProperties();
+	private final FileStorageService fileStorageService = mock(FileStorageService.class);
+	private final ConfigClient configClient = mock(ConfigClient.class);
+	private final ForkJoinPool workers = new ForkJoinPool(1);
+	private final ExecutorService ioExecutor = Executors.newCachedThreadPool();
+	private MongoTemplate mongoTemplate;
+	private RawLoaderMetadataRepository metadataRepository;
+	private TransformServiceImpl transformService;
+	private TransformedDataServiceImpl transformedData;
+
+	@BeforeAll
+	static void startMongo() {
+		mongo = EmbeddedMongo.start();
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mongo.template("transforms");
+		new MongoIndexInitializer(mongoTemplate, Runnable::run).createIndexes();
+		metadataRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(RawLoaderMetadataRepository.class);
+		// batches of 5 rows converted inline, a checkpoint every 10 rows
+		properties.getIngest().setParallelism(1);
+		properties.getIngest().setBatchSize(5);
+		properties.getJobs().setCheckpointRows(10);
+
+		IngestMetrics metrics = new IngestMetrics(new SimpleMeterRegistry());
+		TransformedStore store = new TransformedStore(mongoTemplate, ioExecutor, properties, metrics);
+		transformService = new TransformServiceImpl(metadataRepository, fileStorageService, configClient,
+				new RowProcessingEngine(workers, properties), mongoTemplate, store, metrics, properties,
+				new AdmissionController(properties.getAdmission(), 1L << 30));
+		transformedData = new TransformedDataServiceImpl(mongoTemplate, metadataRepository, properties);
+
+		when(configClient.getConfig(1L, "cfg")).thenReturn(config(1L));
+		when(fileStorageService.downloadByMetadataId(any())).thenAnswer(call -> csv());
+	}
+
+	@AfterEach
+	void tearDown() {
+		ioExecutor.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	private static LoaderConfigDTO config(long version) {
+		LoaderColumnDTO name = new LoaderColumnDTO();
+		name.setHeader("name");
+		name.setKey("name");
+		name.setType("string");
+		LoaderColumnDTO amount = new LoaderColumnDTO();
+		amount.setHeader("amount");
+		amount.setKey("amount");
+		amount.setType("number");
+		LoaderConfigDTO config = new LoaderConfigDTO();
+		config.setConfigId("cfg");
+		config.setPartnerId(1L);
+		config.setColumnMappings(List.of(name, amount));
+		config.setVersion(version);
+		return config;
+	}
+
+	private static InputStream csv() {
+		StringBuilder csv = new StringBuilder("name,amount\n");
+		for (int i = 0; i < ROWS; i++) csv.append('n').append(i).append(',').append(i).append('\n');
+		return new ByteArrayInputStream(csv.toString().getBytes(UTF_8));
+	}
+
+	private RawLoaderMetadata upload() {
+		RawLoaderMetadata metadata = RawLoaderMetadata.newUpload("rows.csv", 1L, "cfg", "CSV");
+		metadata.setValidationStatus("VALIDATED");
+		metadata.setRowCount(ROWS);
+		return metadataRepository.save(metadata);
+	}
+
+	private RawLoaderMetadata reload(String metadataId) {
+		return metadataRepository.findById(metadataId).orElseThrow();
+	}
+
+	// what readers see, in order
+	private List<String> names(String metadataId) {
+		List<String> names = new ArrayList<>();
+		transformedData.forEach(metadataId, row -> names.add((String) row.getTransformedRow().get("name")));
+		return names;
+	}
+
+	private static List<String> expected() {
+		return IntStream.range(0, ROWS).mapToObj(i -> "n" + i).toList();
+	}
+
+	private Instant insertedAt(String metadataId, String runId, long row) {
+		return mongoTemplate.findOne(Query.query(Criteria.where("metadataId").is(metadataId).and("runId").is(runId)
+				.and("row").is(row)), RawLoaderTransformed.class).getInsertedAt();
+	}
+
+	// the run dies once the given number of rows was reported, after the checkpoint at that row
+	private static TransformProgress failingAt(long rows) {
+		return processed -> {
+			if (processed >= rows) throw new IllegalStateException("node lost");
+			return true;
+		};
+	}
+
+	@Test
+	void resumesAfterAFailureWhileReadersKeepThePublishedRows() {
+		String metadataId = upload().getId();
+		assertThat(transformService.transform(metadataId)).isEqualTo(ROWS);
+		String published = reload(metadataId).getTransformRunId();
+
+		assertThatThrownBy(() -> transformService.transform(metadataId, failingAt(20)))
+				.hasMessageContaining("node lost")
+				.hasRootCauseInstanceOf(IllegalStateException.class);
+
+		RawLoaderMetadata failed = reload(metadataId);
+		TransformCheckpoint checkpoint = failed.getTransformCheckpoint();
+		assertThat(checkpoint.getRows()).isEqualTo(20);
+		assertThat(checkpoint.getRunId()).isNotEqualTo(published);
+		assertThat(checkpoint.getOwner()).isNull();
+		assertThat(failed.getTransformRunId()).isEqualTo(published);
+		assertThat(names(metadataId)).isEqualTo(expected());
+		Instant firstRowWritten = insertedAt(metadataId, checkpoint.getRunId(), 0);
+
+		assertThat(transformService.transform(metadataId)).isEqualTo(ROWS);
+
+		RawLoaderMetadata resumed = reload(metadataId);
+		assertThat(resumed.getTransformRunId()).isEqualTo(checkpoint.getRunId());
+		assertThat(resumed.getTransformCheckpoint()).isNull();
+		assertThat(names(metadataId)).isEqualTo(expected());
+		// rows up to the checkpoint were kept, not written again
+		assertThat(insertedAt(metadataId, checkpoint.getRunId(), 0)).isEqualTo(firstRowWritten);
+		assertThat(mongoTemplate.count(new Query(), RawLoaderTransformed.class)).isEqualTo(ROWS);
+	}
+
+	@Test
+	void startsOverWhenTheCheckpointIsForAnotherConfigVersion() {
+		String metadataId = upload().getId();
+		assertThatThrownBy(() -> transformService.transform(metadataId, failingAt(20))).hasMessageContaining("node lost");
+		String interrupted = reload(metadataId).getTransformCheckpoint().getRunId();
+		assertThat(names(metadataId)).isEmpty();
+
+		when(configClient.getConfig(1L, "cfg")).thenReturn(config(2L));
+		assertThat(transformService.transform(metadataId)).isEqualTo(ROWS);
+
+		assertThat(reload(metadataId).getTransformRunId()).isNotEqualTo(interrupted);
+		assertThat(names(metadataId)).isEqualTo(expected());
+		assertThat(mongoTemplate.count(new Query(), RawLoaderTransformed.class)).isEqualTo(ROWS);
+	}
+
+	@Test
+	void anotherRunWaitsForTheLease() {
+		String metadataId = upload().getId();
+		Query upload = Query.query(Criteria.where("_id").is(metadataId));
+		mongoTemplate.updateFirst(upload, new Update().set("transformCheckpoint.owner", "other")
+				.set("transformCheckpoint.leaseUntil", Instant.now().plusSeconds(60)), RawLoaderMetadata.class);
+
+		assertThatThrownBy(() -> transformService.transform(metadataId))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+		assertThat(mongoTemplate.count(new Query(), RawLoaderTransformed.class)).isZero();
+
+		// the holder stopped renewing: the next run takes over
+		mongoTemplate.updateFirst(upload, new Update().set("transformCheckpoint.leaseUntil", Instant.now().minusSeconds(1)),
+				RawLoaderMetadata.class);
+		assertThat(transformService.transform(metadataId)).isEqualTo(ROWS);
+		assertThat(names(metadataId)).isEqualTo(expected());
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.rawloader.service.impl;
+
+import com.example.rawloader.config.RawLoaderProperties;
+import com.example.rawloader.model.ValidationError;
+import com.example.rawloader.model.ValidationErrorGroup;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValidationErrorCollectorTests {
+
+	private static RawLoaderProperties.Validation settings(int maxErrors, long abortAfter) {
+		RawLoaderProperties.Validation settings = new RawLoaderProperties.Validation();
+		settings.setMaxErrors(maxErrors);
+		settings.setAbortAfterErrors(abortAfter);
+		settings.setSamplesPerGroup(2);
+		settings.setSpillBatchSize(3);
+		return settings;
+	}
+
+	@Test
+	void keepsTheFirstErrorsAndSpillsAllOfThem() {
+		List<List<ValidationError>> spilled = new ArrayList<>();
+		ValidationErrorCollector errors = new ValidationErrorCollector(settings(2, 0), spilled::add);
+
+		List<ValidationError> batch = new ArrayList<>();
+		for (int row = 2; row < 9; row++) batch.add(new ValidationError(row, "Amount", "Invalid number"));
+		batch.add(new ValidationError(9, "Date", "Invalid date"));
+		assertThat(errors.addAll(batch)).isTrue();
+		errors.add(new ValidationError(null, "internal", "boom"));
+		errors.flush();
+
+		assertThat(errors.count()).isEqualTo(9);
+		assertThat(errors.kept()).extracting(ValidationError::getRow).containsExactly(2, 3, null);
+		assertThat(spilled).hasSize(3);
+		assertThat(spilled.stream().mapToInt(List::size).sum()).isEqualTo(9);
+
+		List<ValidationErrorGroup> groups = errors.groups();
+		assertThat(groups).extracting(ValidationErrorGroup::getCount).containsExactly(7L, 1L, 1L);
+		assertThat(groups.get(0).getSampleRows()).containsExactly(2, 3);
+		assertThat(groups.get(2).getSampleRows()).isEmpty();
+	}
+
+	@Test
+	void stopsAtTheAbortLimit() {
+		ValidationErrorCollector errors = new ValidationErrorCollector(settings(10, 3), null);
+
+		assertThat(errors.addAll(List.of(new ValidationError(2, "A", "x"), new ValidationError(3, "A", "x")))).isTrue();
+		assertThat(errors.addAll(List.of(new ValidationError(4, "A", "x")))).isFalse();
+		assertThat(errors.isAborted()).isTrue();
+	}
+}
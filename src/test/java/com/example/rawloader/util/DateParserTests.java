@@ -0,0 +1,60 @@
+package com.example.rawloader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DateParserTests {
+
+	private static final List<String> FALLBACKS = List.of("dd/MM/yyyy", "d/M/yyyy", "yyyy-MM-dd", "dd-MM-yyyy", "MM/dd/yyyy");
+
+	@Test
+	void matchesDateTimeFormatterForNumericPatterns() {
+		Random random = new Random(42);
+		for (String pattern : List.of("dd/MM/yyyy", "d/M/yyyy", "yyyy-MM-dd", "MM/dd/yyyy", "dd.MM.yy", "ddMMyyyy")) {
+			DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+			DateParser parser = new DateParser(pattern, List.of());
+			for (int i = 0; i < 5_000; i++) {
+				String text = random.nextBoolean()
+						? formatter.format(LocalDate.ofEpochDay(random.nextInt(60_000) - 10_000))
+						: random.nextInt(40) + "/" + random.nextInt(14) + "/" + (1990 + random.nextInt(40));
+				assertThat(parser.parseEpochDay(text)).as("%s %s", pattern, text).isEqualTo(reference(text, formatter));
+			}
+		}
+	}
+
+	@Test
+	void fallsBackWithoutThrowing() {
+		DateParser parser = new DateParser("dd/MM/yyyy", FALLBACKS);
+
+		assertThat(parser.isValid(" 2024-01-31 ")).isTrue();
+		assertThat(parser.isValid("12/25/2024")).isTrue();
+		assertThat(parser.isValid("31-13-2024")).isFalse();
+		assertThat(parser.isValid("")).isFalse();
+		// ambiguous values always resolve with the configured pattern first
+		assertThat(LocalDate.ofEpochDay(parser.parseEpochDay("01/02/2024"))).isEqualTo(LocalDate.of(2024, 2, 1));
+		// SMART resolution clamps day 29-31 like DateTimeFormatter
+		assertThat(LocalDate.ofEpochDay(parser.parseEpochDay("31/02/2023"))).isEqualTo(LocalDate.of(2023, 2, 28));
+	}
+
+	@Test
+	void parsesOtherPatternsThroughFormatter() {
+		DateParser parser = new DateParser("uuuu-MM-dd", List.of());
+
+		assertThat(LocalDate.ofEpochDay(parser.parseEpochDay("2024-03-05"))).isEqualTo(LocalDate.of(2024, 3, 5));
+		assertThat(parser.parseEpochDay("2024-3-5x")).isEqualTo(DateParser.INVALID);
+	}
+
+	private static long reference(String text, DateTimeFormatter formatter) {
+		try {
+			return LocalDate.parse(text, formatter).toEpochDay();
+		} catch (RuntimeException e) {
+			return DateParser.INVALID;
+		}
+	}
+}
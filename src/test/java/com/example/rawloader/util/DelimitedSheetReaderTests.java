@@ -0,0 +1,56 @@
+package com.example.rawloader.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelimitedSheetReaderTests {
+
+	private static final String CSV = "\uFEFFPolicy No,Premium,Product\r\n"
+			+ "P-1,\"1,200.50\",\"Motor \"\"Gold\"\"\nplan\"\n"
+			+ "\n"
+			+ "P-2,,\n"
+			+ "P-3,99,Home";
+
+	@Test
+	void readsMappedFile(@TempDir Path dir) throws Exception {
+		Path file = dir.resolve("upload.csv");
+		Files.writeString(file, CSV, StandardCharsets.UTF_8);
+
+		List<SheetRow> rows = new ArrayList<>();
+		new DelimitedSheetReader(',').read(file, rows::add);
+
+		assertRows(rows);
+	}
+
+	@Test
+	void readsStreamAndStopsEarly() throws Exception {
+		List<SheetRow> rows = new ArrayList<>();
+		new DelimitedSheetReader(',').read(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), rows::add);
+		assertRows(rows);
+
+		List<SheetRow> firstTwo = new ArrayList<>();
+		new DelimitedSheetReader(',').read(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)),
+				row -> firstTwo.add(row) && firstTwo.size() < 2);
+		assertThat(firstTwo).hasSize(2);
+	}
+
+	private static void assertRows(List<SheetRow> rows) {
+		assertThat(rows).hasSize(4);
+		assertThat(rows.get(0).value(0)).isEqualTo("Policy No");
+		assertThat(rows.get(1).value(1)).isEqualTo("1,200.50");
+		assertThat(rows.get(1).value(2)).isEqualTo("Motor \"Gold\"\nplan");
+		// the blank line is skipped but still counted
+		assertThat(rows.get(2).getRowNum()).isEqualTo(3);
+		assertThat(rows.get(2).isCellEmpty(1)).isTrue();
+		assertThat(rows.get(3).value(2)).isEqualTo("Home");
+	}
+}
@@ -0,0 +1,141 @@
+package com.example.rawloader.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedFileCacheTests {
+
+	@TempDir
+	Path dir;
+
+	private static byte[] bytes(int size, int seed) {
+		byte[] b = new byte[size];
+		for (int i = 0; i < size; i++) b[i] = (byte) (i * 31 + seed);
+		return b;
+	}
+
+	private static void store(MappedFileCache cache, String key, byte[] content) throws IOException {
+		try (MappedFileCache.Fill fill = cache.fill(new ByteArrayInputStream(content))) {
+			fill.readAllBytes();
+			fill.commit(key);
+		}
+	}
+
+	@Test
+	void servesStoredFilesFromTheMapping() throws IOException {
+		MappedFileCache cache = new MappedFileCache(dir, 1_000, 1_000);
+		byte[] content = bytes(300, 1);
+
+		assertThat(cache.open("a")).isNull();
+		store(cache, "a", content);
+
+		try (InputStream in = cache.open("a")) {
+			assertThat(in.readAllBytes()).isEqualTo(content);
+		}
+		assertThat(cache.hitCount()).isEqualTo(1);
+		assertThat(cache.missCount()).isEqualTo(1);
+		assertThat(cache.totalBytes()).isEqualTo(300);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedBeyondMaxBytes() throws IOException {
+		MappedFileCache cache = new MappedFileCache(dir, 1_000, 1_000);
+		store(cache, "a", bytes(400, 1));
+		store(cache, "b", bytes(400, 2));
+		cache.open("a").close();
+		store(cache, "c", bytes(400, 3));
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.evictionCount()).isEqualTo(1);
+		assertThat(cache.open("b")).isNull();
+		assertThat(cache.open("a")).isNotNull();
+		assertThat(cache.totalBytes()).isEqualTo(800);
+	}
+
+	@Test
+	void readThroughCachesOnlyStreamsReadToTheEnd() throws IOException {
+		MappedFileCache cache = new MappedFileCache(dir, 1_000, 1_000);
+		byte[] content = bytes(500, 4);
+
+		try (InputStream in = cache.readThrough("partial", new ByteArrayInputStream(content))) {
+			in.readNBytes(100);
+		}
+		assertThat(cache.open("partial")).isNull();
+
+		try (InputStream in = cache.readThrough("full", new ByteArrayInputStream(content))) {
+			assertThat(in.readAllBytes()).isEqualTo(content);
+		}
+		try (InputStream in = cache.open("full")) {
+			assertThat(in.readAllBytes()).isEqualTo(content);
+		}
+		try (var files = Files.list(dir)) {
+			assertThat(files.filter(p -> p.toString().endsWith(".part"))).isEmpty();
+		}
+	}
+
+	@Test
+	void skipsFilesLargerThanMaxFileBytes() throws IOException {
+		MappedFileCache cache = new MappedFileCache(dir, 1_000, 100);
+		store(cache, "big", bytes(101, 5));
+
+		assertThat(cache.open("big")).isNull();
+		assertThat(cache.skippedCount()).isEqualTo(1);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void removesOnlyItsOwnFilesOnStart() throws IOException {
+		MappedFileCache first = new MappedFileCache(dir, 1_000, 1_000);
+		store(first, "a", bytes(100, 6));
+		Files.writeString(dir.resolve("notes.txt"), "not cached");
+		first.close();
+
+		MappedFileCache restarted = new MappedFileCache(dir, 1_000, 1_000);
+
+		assertThat(restarted.open("a")).isNull();
+		assertThat(dir.resolve("a.bin")).doesNotExist();
+		assertThat(dir.resolve("notes.txt")).hasContent("not cached");
+	}
+
+	@Test
+	void refusesADirectoryWithOtherFiles() throws IOException {
+		Path shared = Files.createDirectory(dir.resolve("shared"));
+		Files.writeString(shared.resolve("notes.txt"), "not cached");
+
+		assertThatThrownBy(() -> new MappedFileCache(shared, 1_000, 1_000)).isInstanceOf(IllegalStateException.class);
+		assertThat(shared.resolve("notes.txt")).exists();
+	}
+
+	@Test
+	void refusesADirectoryAnotherCacheHolds() throws IOException {
+		try (MappedFileCache first = new MappedFileCache(dir, 1_000, 1_000)) {
+			store(first, "a", bytes(100, 7));
+
+			assertThatThrownBy(() -> new MappedFileCache(dir, 1_000, 1_000)).isInstanceOf(IllegalStateException.class);
+			try (InputStream in = first.open("a")) {
+				assertThat(in.readAllBytes()).isEqualTo(bytes(100, 7));
+			}
+		}
+	}
+
+	@Test
+	void hitsAreConfirmedForAWhile() throws IOException {
+		try (MappedFileCache cache = new MappedFileCache(dir, 1_000, 1_000)) {
+			store(cache, "a", bytes(100, 8));
+
+			assertThat(cache.isConfirmedWithin("a", Duration.ofMinutes(1))).isTrue();
+			assertThat(cache.isConfirmedWithin("a", Duration.ZERO)).isFalse();
+			assertThat(cache.isConfirmedWithin("b", Duration.ofMinutes(1))).isFalse();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.rawloader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshingCacheTests {
+
+	private final AtomicLong now = new AtomicLong();
+	private final AtomicInteger loads = new AtomicInteger();
+	private final List<Runnable> refreshes = new ArrayList<>();
+
+	private RefreshingCache<String, String> cache(int maxEntries) {
+		return new RefreshingCache<>(key -> key + loads.incrementAndGet(), maxEntries,
+				Duration.ofNanos(100), Duration.ofNanos(1_000), refreshes::add, now::get);
+	}
+
+	@Test
+	void servesStaleWhileRefreshingAndReloadsWhenExpired() {
+		RefreshingCache<String, String> cache = cache(10);
+
+		assertThat(cache.get("a")).isEqualTo("a1");
+		assertThat(cache.get("a")).isEqualTo("a1");
+
+		now.set(500);
+		assertThat(cache.get("a")).isEqualTo("a1");
+		assertThat(refreshes).hasSize(1);
+		refreshes.get(0).run();
+		assertThat(cache.get("a")).isEqualTo("a2");
+
+		now.set(2_000);
+		assertThat(cache.get("a")).isEqualTo("a3");
+
+		assertThat(cache.hitCount()).isEqualTo(2);
+		assertThat(cache.staleHitCount()).isEqualTo(1);
+		assertThat(cache.missCount()).isEqualTo(2);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		RefreshingCache<String, String> cache = cache(2);
+		cache.get("a");
+		cache.get("b");
+		cache.get("a");
+		cache.get("c");
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.evictionCount()).isEqualTo(1);
+		assertThat(cache.get("a")).isEqualTo("a1");
+		assertThat(cache.get("b")).isEqualTo("b4");
+	}
+
+	@Test
+	void failuresAreNotCachedAndInvalidationForcesReload() {
+		AtomicInteger calls = new AtomicInteger();
+		RefreshingCache<String, String> cache = new RefreshingCache<>(key -> {
+			if (calls.incrementAndGet() == 1) throw new IllegalStateException("down");
+			return key + calls.get();
+		}, 10, Duration.ofMinutes(1), Duration.ofMinutes(1), Runnable::run, now::get);
+
+		assertThatThrownBy(() -> cache.get("a")).isInstanceOf(IllegalStateException.class);
+		assertThat(cache.get("a")).isEqualTo("a2");
+		cache.invalidate("a");
+		assertThat(cache.get("a")).isEqualTo("a3");
+		assertThat(cache.loadFailureCount()).isEqualTo(1);
+	}
+
+	@Test
+	void coalescesConcurrentLoads() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loading = new AtomicInteger();
+		AtomicInteger maxLoading = new AtomicInteger();
+		RefreshingCache<String, String> cache = new RefreshingCache<>(key -> {
+			maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				loading.decrementAndGet();
+			}
+			return key;
+		}, 10, Duration.ofMinutes(1), Duration.ofMinutes(1), Runnable::run);
+
+		int callers = 8;
+		CountDownLatch arrived = new CountDownLatch(callers);
+		try (ExecutorService pool = Executors.newFixedThreadPool(callers)) {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				results.add(pool.submit(() -> {
+					arrived.countDown();
+					return cache.get("a");
+				}));
+			}
+			// every caller is in flight while the first load is held
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(arrived.await(5, TimeUnit.SECONDS)).isTrue();
+			release.countDown();
+			for (Future<String> f : results) assertThat(f.get()).isEqualTo("a");
+		}
+		// a caller that only got past its cache check after the load finished may load again, never alongside it
+		assertThat(maxLoading.get()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.rawloader.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamFanOutTests {
+
+	private static final byte[] CONTENT = "0123456789".repeat(4).getBytes(UTF_8);
+	private static final int CHUNK = 4;
+	private static final int DEPTH = 2;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private CompletableFuture<byte[]> readAll(InputStream in) {
+		return CompletableFuture.supplyAsync(() -> {
+			try (in) {
+				return in.readAllBytes();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}, executor);
+	}
+
+	@Test
+	void everyBranchGetsTheSameBytes() throws Exception {
+		InputStream[] branches = StreamFanOut.split(new ByteArrayInputStream(CONTENT), 3, CHUNK, DEPTH, executor);
+
+		for (InputStream branch : branches) {
+			assertThat(readAll(branch).get(10, TimeUnit.SECONDS)).isEqualTo(CONTENT);
+		}
+	}
+
+	@Test
+	void slowConsumerSetsThePace() throws Exception {
+		CountingStream source = new CountingStream(new ByteArrayInputStream(CONTENT));
+		InputStream[] branches = StreamFanOut.split(source, 2, CHUNK, DEPTH, executor);
+
+		CompletableFuture<byte[]> fast = readAll(branches[0]);
+		Thread.sleep(200);
+
+		// the slow branch's queue is full: the pump holds one more chunk and reads no further
+		assertThat(fast).isNotDone();
+		assertThat(source.bytesRead.get()).isLessThanOrEqualTo((DEPTH + 1) * CHUNK);
+
+		assertThat(readAll(branches[1]).get(10, TimeUnit.SECONDS)).isEqualTo(CONTENT);
+		assertThat(fast.get(10, TimeUnit.SECONDS)).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void closingABranchDetachesItWithoutStoppingTheOthers() throws Exception {
+		CountingStream source = new CountingStream(new ByteArrayInputStream(CONTENT));
+		InputStream[] branches = StreamFanOut.split(source, 2, CHUNK, DEPTH, executor);
+
+		branches[1].close();
+
+		assertThat(readAll(branches[0]).get(10, TimeUnit.SECONDS)).isEqualTo(CONTENT);
+		assertThatThrownBy(branches[1]::read).isInstanceOf(IOException.class).hasMessageContaining("closed");
+		assertThat(source.bytesRead.get()).isEqualTo(CONTENT.length);
+	}
+
+	@Test
+	void aFailingSourceFailsEveryBranchAfterTheBytesItDelivered() throws Exception {
+		InputStream source = new CountingStream(new ByteArrayInputStream(CONTENT)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (bytesRead.get() >= 2 * CHUNK) throw new IOException("connection reset");
+				return super.read(b, off, len);
+			}
+		};
+		InputStream[] branches = StreamFanOut.split(source, 2, CHUNK, DEPTH, executor);
+
+		for (InputStream branch : branches) {
+			byte[] delivered = branch.readNBytes(2 * CHUNK);
+			assertThat(new String(delivered, UTF_8)).isEqualTo("01234567");
+			assertThatThrownBy(branch::read).isInstanceOf(IOException.class)
+					.hasMessageContaining("connection reset")
+					.hasCauseInstanceOf(IOException.class);
+		}
+	}
+
+	private static class CountingStream extends FilterInputStream {
+
+		final AtomicLong bytesRead = new AtomicLong();
+
+		CountingStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) bytesRead.addAndGet(n);
+			return n;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.rawloader.util;
+
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XlsSheetParserTests {
+
+	// 2020-01-01 in the 1900 date system
+	private static final double NEW_YEAR_2020 = 43831;
+
+	@TempDir
+	Path dir;
+
+	private Path write(HSSFWorkbook workbook) throws IOException {
+		Path file = Files.createTempFile(dir, "sheet", ".xls");
+		try (workbook; OutputStream out = Files.newOutputStream(file)) {
+			workbook.write(out);
+		}
+		return file;
+	}
+
+	private static List<SheetRow> read(Path file) throws IOException {
+		List<SheetRow> rows = new ArrayList<>();
+		new ExcelSheetReader().read(file, rows::add);
+		return rows;
+	}
+
+	private static CellStyle dateStyle(HSSFWorkbook workbook) {
+		CellStyle style = workbook.createCellStyle();
+		style.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+		return style;
+	}
+
+	@Test
+	void readsSharedStringsNumbersDatesErrorsAndFormulaStrings() throws Exception {
+		HSSFWorkbook workbook = new HSSFWorkbook();
+		Sheet sheet = workbook.createSheet("data");
+		Row first = sheet.createRow(0);
+		first.createCell(0).setCellValue("shared");
+		first.createCell(1).setCellValue(12.5);
+		first.createCell(2).setCellValue(true);
+		Row second = sheet.createRow(1);
+		second.createCell(0).setCellErrorValue(FormulaError.DIV0.getCode());
+		second.createCell(1).setCellFormula("\"ab\"&\"cd\"");
+		second.createCell(3).setCellValue(NEW_YEAR_2020);
+		second.getCell(3).setCellStyle(dateStyle(workbook));
+		workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+		List<SheetRow> rows = read(write(workbook));
+
+		assertThat(rows).hasSize(2);
+		assertThat(rows.get(0).value(0)).isEqualTo("shared");
+		assertThat(rows.get(0).kind(0)).isEqualTo(SheetRow.Kind.STRING);
+		assertThat(rows.get(0).value(1)).isEqualTo("12.5");
+		assertThat(rows.get(0).number(1)).isEqualTo(12.5);
+		assertThat(rows.get(0).kind(2)).isEqualTo(SheetRow.Kind.BOOLEAN);
+		assertThat(rows.get(0).value(2)).isEqualTo("TRUE");
+
+		assertThat(rows.get(1).getRowNum()).isEqualTo(1);
+		assertThat(rows.get(1).kind(0)).isEqualTo(SheetRow.Kind.ERROR);
+		assertThat(rows.get(1).value(0)).isEqualTo("#DIV/0!");
+		// the cached result of a string formula comes in a record of its own
+		assertThat(rows.get(1).kind(1)).isEqualTo(SheetRow.Kind.STRING);
+		assertThat(rows.get(1).value(1)).isEqualTo("abcd");
+		assertThat(rows.get(1).isCellEmpty(2)).isTrue();
+		assertThat(rows.get(1).kind(3)).isEqualTo(SheetRow.Kind.DATE);
+		assertThat(rows.get(1).value(3)).isEqualTo("2020-01-01");
+		assertThat(rows.get(1).number(3)).isEqualTo(NEW_YEAR_2020);
+	}
+
+	@Test
+	void movesDatesOfA1904WorkbookToThe1900System() throws Exception {
+		HSSFWorkbook workbook = new HSSFWorkbook();
+		((DateWindow1904Record) workbook.getInternalWorkbook().findFirstRecordBySid(DateWindow1904Record.sid))
+				.setWindowing((short) 1);
+		Row row = workbook.createSheet("data").createRow(0);
+		row.createCell(0).setCellValue(NEW_YEAR_2020 - 1462);
+		row.getCell(0).setCellStyle(dateStyle(workbook));
+
+		List<SheetRow> rows = read(write(workbook));
+
+		assertThat(rows.get(0).kind(0)).isEqualTo(SheetRow.Kind.DATE);
+		assertThat(rows.get(0).value(0)).isEqualTo("2020-01-01");
+		assertThat(rows.get(0).number(0)).isEqualTo(NEW_YEAR_2020);
+	}
+
+	@Test
+	void stopsAtTheEndOfTheFirstSheet() throws Exception {
+		HSSFWorkbook workbook = new HSSFWorkbook();
+		Sheet data = workbook.createSheet("data");
+		data.createRow(0).createCell(0).setCellValue("header");
+		data.createRow(2).createCell(1).setCellValue("last");
+		workbook.createSheet("other").createRow(0).createCell(0).setCellValue("not read");
+
+		List<SheetRow> rows = read(write(workbook));
+
+		// the last row has no next row to end it: the sheet's EOF record does
+		assertThat(rows).extracting(SheetRow::getRowNum).containsExactly(0, 2);
+		assertThat(rows.get(1).value(1)).isEqualTo("last");
+	}
+
+	@Test
+	void stopsWhenTheHandlerAsks() throws Exception {
+		HSSFWorkbook workbook = new HSSFWorkbook();
+		Sheet sheet = workbook.createSheet("data");
+		for (int i = 0; i < 5; i++) sheet.createRow(i).createCell(0).setCellValue(i);
+
+		List<SheetRow> rows = new ArrayList<>();
+		new ExcelSheetReader().read(write(workbook), row -> rows.add(row) && rows.size() < 2);
+
+		assertThat(rows).extracting(SheetRow::getRowNum).containsExactly(0, 1);
+	}
+}